@@ -0,0 +1,62 @@
+package compiler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class CodeGenBenchmark {
+
+    // whole output as one String
+    @Benchmark
+    public String generate(Workload w) {
+        return new CodeGenerator().generate(w.optimized);
+    }
+
+    // streamed through the pooled direct buffer into a channel that drops the bytes
+    @Benchmark
+    public void generateToChannel(Workload w, Blackhole bh) throws IOException {
+        new CodeGenerator().generate(w.optimized, new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                bh.consume(src.get(src.limit() - 1));
+                src.position(src.limit());
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    // binary AST, the form cached and shipped programs take
+    @Benchmark
+    public byte[] writeAst(Workload w) {
+        return AstFormat.write(w.optimized);
+    }
+
+    @Benchmark
+    public AST.Program readAst(Workload w) {
+        return AstFormat.read(ByteBuffer.wrap(w.encoded));
+    }
+}
@@ -0,0 +1,245 @@
+package compiler;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of reaching every node of a tree, without any work per node: through
+// AST.visit, which every pass uses, through the same kind switch written out
+// inline, and through an instanceof chain ordered the way the passes used to
+// test node kinds. All walks visit the same nodes, so the
+// difference is the dispatch itself.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class DispatchBenchmark {
+
+    @Benchmark
+    public int visitor(Workload w) {
+        NodeCounter counter = new NodeCounter();
+        for (AST.Stmt s : w.program.statements) AST.visit(s, counter);
+        return counter.nodes;
+    }
+
+    @Benchmark
+    public int kindSwitch(Workload w) {
+        int nodes = 0;
+        for (AST.Stmt s : w.program.statements) nodes += kindStmt(s);
+        return nodes;
+    }
+
+    @Benchmark
+    public int instanceofChain(Workload w) {
+        int nodes = 0;
+        for (AST.Stmt s : w.program.statements) nodes += stmt(s);
+        return nodes;
+    }
+
+    // =============== VISITOR ===============
+    private static final class NodeCounter implements AST.StmtVisitor<Void>, AST.ExprVisitor<Void> {
+        int nodes;
+
+        private void stmt(AST.Stmt s) {
+            if (s != null) AST.visit(s, this);
+        }
+
+        private void expr(AST.Expr e) {
+            if (e != null) AST.visit(e, this);
+        }
+
+        @Override
+        public Void visitVarDecl(AST.VarDecl s) {
+            nodes++;
+            expr(s.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitPrint(AST.Print s) {
+            nodes++;
+            expr(s.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(AST.ExpressionStmt s) {
+            nodes++;
+            expr(s.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(AST.Block s) {
+            nodes++;
+            for (AST.Stmt inner : s.statements) stmt(inner);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(AST.IfStmt s) {
+            nodes++;
+            expr(s.condition);
+            stmt(s.thenBranch);
+            stmt(s.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(AST.WhileStmt s) {
+            nodes++;
+            expr(s.condition);
+            stmt(s.body);
+            return null;
+        }
+
+        @Override
+        public Void visitForStmt(AST.ForStmt s) {
+            nodes++;
+            stmt(s.initializer);
+            expr(s.condition);
+            expr(s.increment);
+            stmt(s.body);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(AST.Literal e) {
+            nodes++;
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(AST.Variable e) {
+            nodes++;
+            return null;
+        }
+
+        @Override
+        public Void visitBinary(AST.Binary e) {
+            nodes++;
+            expr(e.left);
+            expr(e.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnary(AST.Unary e) {
+            nodes++;
+            expr(e.right);
+            return null;
+        }
+
+        @Override
+        public Void visitGrouping(AST.Grouping e) {
+            nodes++;
+            expr(e.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(AST.Assignment e) {
+            nodes++;
+            expr(e.value);
+            return null;
+        }
+    }
+
+    // =============== INSTANCEOF CHAIN ===============
+    private static int stmt(AST.Stmt stmt) {
+        if (stmt == null) return 0;
+        if (stmt instanceof AST.VarDecl v) {
+            return 1 + expr(v.initializer);
+        } else if (stmt instanceof AST.Print p) {
+            return 1 + expr(p.expression);
+        } else if (stmt instanceof AST.ExpressionStmt e) {
+            return 1 + expr(e.expression);
+        } else if (stmt instanceof AST.Block b) {
+            int nodes = 1;
+            for (AST.Stmt s : b.statements) nodes += stmt(s);
+            return nodes;
+        } else if (stmt instanceof AST.IfStmt i) {
+            return 1 + expr(i.condition) + stmt(i.thenBranch) + stmt(i.elseBranch);
+        } else if (stmt instanceof AST.WhileStmt w) {
+            return 1 + expr(w.condition) + stmt(w.body);
+        } else if (stmt instanceof AST.ForStmt f) {
+            return 1 + stmt(f.initializer) + expr(f.condition) + expr(f.increment) + stmt(f.body);
+        }
+        return 0;
+    }
+
+    private static int expr(AST.Expr expr) {
+        if (expr == null) return 0;
+        if (expr instanceof AST.Literal) {
+            return 1;
+        } else if (expr instanceof AST.Variable) {
+            return 1;
+        } else if (expr instanceof AST.Binary b) {
+            return 1 + expr(b.left) + expr(b.right);
+        } else if (expr instanceof AST.Assignment a) {
+            return 1 + expr(a.value);
+        } else if (expr instanceof AST.Unary u) {
+            return 1 + expr(u.right);
+        } else if (expr instanceof AST.Grouping g) {
+            return 1 + expr(g.expression);
+        }
+        return 0;
+    }
+
+    // =============== KIND SWITCH ===============
+    private static int kindStmt(AST.Stmt stmt) {
+        if (stmt == null) return 0;
+        switch (((AST.Node) stmt).kind) {
+            case AST.VAR_DECL:
+                return 1 + kindExpr(((AST.VarDecl) stmt).initializer);
+            case AST.PRINT:
+                return 1 + kindExpr(((AST.Print) stmt).expression);
+            case AST.EXPRESSION_STMT:
+                return 1 + kindExpr(((AST.ExpressionStmt) stmt).expression);
+            case AST.BLOCK: {
+                int nodes = 1;
+                for (AST.Stmt s : ((AST.Block) stmt).statements) nodes += kindStmt(s);
+                return nodes;
+            }
+            case AST.IF_STMT: {
+                AST.IfStmt i = (AST.IfStmt) stmt;
+                return 1 + kindExpr(i.condition) + kindStmt(i.thenBranch) + kindStmt(i.elseBranch);
+            }
+            case AST.WHILE_STMT: {
+                AST.WhileStmt w = (AST.WhileStmt) stmt;
+                return 1 + kindExpr(w.condition) + kindStmt(w.body);
+            }
+            case AST.FOR_STMT: {
+                AST.ForStmt f = (AST.ForStmt) stmt;
+                return 1 + kindStmt(f.initializer) + kindExpr(f.condition) + kindExpr(f.increment) + kindStmt(f.body);
+            }
+            default:
+                return 0;
+        }
+    }
+
+    private static int kindExpr(AST.Expr expr) {
+        if (expr == null) return 0;
+        switch (((AST.Node) expr).kind) {
+            case AST.LITERAL:
+            case AST.VARIABLE:
+                return 1;
+            case AST.BINARY:
+                return 1 + kindExpr(((AST.Binary) expr).left) + kindExpr(((AST.Binary) expr).right);
+            case AST.UNARY:
+                return 1 + kindExpr(((AST.Unary) expr).right);
+            case AST.GROUPING:
+                return 1 + kindExpr(((AST.Grouping) expr).expression);
+            case AST.ASSIGNMENT:
+                return 1 + kindExpr(((AST.Assignment) expr).value);
+            default:
+                return 0;
+        }
+    }
+}
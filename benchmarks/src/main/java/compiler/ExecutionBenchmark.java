@@ -0,0 +1,120 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Running a program rather than compiling it: the tree-walking Interpreter
+// and the RegisterVM on the same optimized AST, with MapEvaluator (boxed
+// values in HashMap scopes) as the baseline both are measured against. The
+// Programs shapes are straight-line code, so these loop a fixed number of
+// times instead. Output goes to a discarding stream, so printing costs
+// formatting only.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class ExecutionBenchmark {
+    public enum Loop {
+        // nested int loops with a branch per step
+        INTS,
+        // double accumulation with a compare per step
+        DOUBLES,
+        // a string built per step, printed now and then
+        STRINGS
+    }
+
+    @State(Scope.Benchmark)
+    public static class Program {
+        @Param({"INTS", "DOUBLES", "STRINGS"})
+        public Loop loop;
+
+        @Param({"1000", "100000"})
+        public int iterations;
+
+        AST.Program optimized;
+        RegisterVM.Program code;
+        final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+
+        @Setup
+        public void setUp() {
+            String source = source(loop, iterations);
+            optimized = new Optimizer().optimize(new parser(TokenBuffer.lex(source.toCharArray())).parseProgram());
+            code = new RegisterCompiler().compile(optimized);
+            // the baseline has to do the same work, or the comparison means nothing
+            String expected = output(o -> new Interpreter(o).run(optimized));
+            if (!output(o -> new MapEvaluator(o).run(optimized)).equals(expected)
+                    || !output(o -> new RegisterVM(o).run(code)).equals(expected)) {
+                throw new IllegalStateException(loop + ": the engines disagree on the output");
+            }
+        }
+
+        private static String output(java.util.function.Consumer<PrintStream> run) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            run.accept(new PrintStream(bytes));
+            return bytes.toString();
+        }
+    }
+
+    @Benchmark
+    public void mapBaseline(Program p) {
+        new MapEvaluator(p.out).run(p.optimized);
+    }
+
+    // resolving slots is part of every run
+    @Benchmark
+    public void interpreter(Program p) {
+        new Interpreter(p.out).run(p.optimized);
+    }
+
+    @Benchmark
+    public void registerVM(Program p) {
+        new RegisterVM(p.out).run(p.code);
+    }
+
+    @Benchmark
+    public void registerVMWithCompile(Program p) {
+        new RegisterVM(p.out).run(p.optimized);
+    }
+
+    static String source(Loop loop, int n) {
+        switch (loop) {
+            case INTS:
+                return "tibuok sum = 0;\n"
+                     + "alang (tibuok i = 0; i < " + n + "; i = i + 1) {\n"
+                     + "    tibuok j = 0;\n"
+                     + "    samtang (j < 10) {\n"
+                     + "        ug (i / 2 * 2 == i) { sum = sum + j; } edi { sum = sum - 1; }\n"
+                     + "        j = j + 1;\n"
+                     + "    }\n"
+                     + "}\n"
+                     + "imprenta_gawas sum;\n";
+            case DOUBLES:
+                return "duhay x = 0.0;\n"
+                     + "alang (tibuok i = 0; i < " + n + "; i = i + 1) {\n"
+                     + "    x = x + i * 0.5 / 3.0;\n"
+                     + "    ug (x > 1000.0) { x = x - 1000.0; }\n"
+                     + "}\n"
+                     + "imprenta_gawas x;\n";
+            default:
+                return "karhan s = \"\";\n"
+                     + "alang (tibuok i = 0; i < " + n + "; i = i + 1) {\n"
+                     + "    s = \"item \" + i;\n"
+                     + "    ug (i / 100 * 100 == i) { imprenta_gawas s + \"!\"; }\n"
+                     + "}\n";
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package compiler;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class LexerBenchmark {
+
+    // original regex-style lexer building Token objects
+    @Benchmark
+    public Object tokenize(Workload w) {
+        Lexical_Analyzer lexer = new Lexical_Analyzer(w.source);
+        lexer.tokenize();
+        return lexer.tokens;
+    }
+
+    // table-driven lexer, still building Token objects
+    @Benchmark
+    public Object tokenizeTable(Workload w) {
+        Lexical_Analyzer lexer = new Lexical_Analyzer(w.source, Lexical_Analyzer.Mode.TABLE);
+        lexer.tokenize();
+        return lexer.tokens;
+    }
+
+    // struct-of-arrays token buffer, no per-token objects
+    @Benchmark
+    public Object tokenizeCompact(Workload w) {
+        return TokenBuffer.lex(w.chars);
+    }
+
+    // pull lexer drained without storing anything
+    @Benchmark
+    public void tokenStream(Workload w, Blackhole bh) {
+        TableLexer lexer = new TableLexer(w.chars);
+        int kind;
+        while ((kind = lexer.next()) != TokenKind.EOF) bh.consume(kind);
+    }
+}
@@ -0,0 +1,204 @@
+package compiler;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Baseline for ExecutionBenchmark: the naive way to run the AST, the way the
+// old CodeGenerator kept its variables. Every value is a boxed Object, every
+// scope is a HashMap<String, Object> searched innermost first on each read
+// and write, and operators are picked by their text on every evaluation.
+// Benchmark-only; the compiler itself runs programs on the Interpreter.
+final class MapEvaluator implements AST.StmtVisitor<Void>, AST.ExprVisitor<Object> {
+    private final PrintStream out;
+    private final Deque<Map<String, Object>> scopes = new ArrayDeque<>();
+
+    MapEvaluator(PrintStream out) {
+        this.out = out;
+    }
+
+    void run(AST.Program program) {
+        scopes.push(new HashMap<>());
+        for (AST.Stmt s : program.statements) AST.visit(s, this);
+        scopes.clear();
+    }
+
+    // =============== VARIABLES ===============
+    private Map<String, Object> scopeOf(String name) {
+        for (Map<String, Object> scope : scopes) {
+            if (scope.containsKey(name)) return scope;
+        }
+        throw new RuntimeException("Undefined variable '" + name + "'");
+    }
+
+    // keeps a variable's declared type by converting to the kind of value it holds
+    private static Object convert(Object value, Object like) {
+        if (like instanceof Integer) return value instanceof Character c ? (int) c : ((Number) value).intValue();
+        if (like instanceof Float) return ((Number) value).floatValue();
+        if (like instanceof Double) return ((Number) value).doubleValue();
+        if (like instanceof Character) return value instanceof Character ? value : (char) ((Number) value).intValue();
+        return value;
+    }
+
+    private static Object initial(String type) {
+        switch (type) {
+            case "tibuok": return 0;
+            case "lutaw": return 0f;
+            case "duhay": return 0.0;
+            case "karakter": return '\0';
+            default: return null;
+        }
+    }
+
+    // =============== STATEMENTS ===============
+    @Override
+    public Void visitVarDecl(AST.VarDecl v) {
+        Object like = initial(v.type);
+        Object value = v.initializer != null ? AST.visit(v.initializer, this) : like;
+        scopes.peek().put(v.name, like != null ? convert(value, like) : value);
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(AST.Print p) {
+        out.println(String.valueOf(AST.visit(p.expression, this)));
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(AST.ExpressionStmt e) {
+        AST.visit(e.expression, this);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(AST.Block b) {
+        scopes.push(new HashMap<>());
+        try {
+            for (AST.Stmt s : b.statements) AST.visit(s, this);
+        } finally {
+            scopes.pop();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(AST.IfStmt i) {
+        if ((Boolean) AST.visit(i.condition, this)) AST.visit(i.thenBranch, this);
+        else if (i.elseBranch != null) AST.visit(i.elseBranch, this);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(AST.WhileStmt w) {
+        while ((Boolean) AST.visit(w.condition, this)) AST.visit(w.body, this);
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(AST.ForStmt f) {
+        scopes.push(new HashMap<>());
+        try {
+            if (f.initializer != null) AST.visit(f.initializer, this);
+            while (f.condition == null || (Boolean) AST.visit(f.condition, this)) {
+                AST.visit(f.body, this);
+                if (f.increment != null) AST.visit(f.increment, this);
+            }
+        } finally {
+            scopes.pop();
+        }
+        return null;
+    }
+
+    // =============== EXPRESSIONS ===============
+    @Override
+    public Object visitLiteral(AST.Literal l) {
+        return l.value;
+    }
+
+    @Override
+    public Object visitVariable(AST.Variable v) {
+        return scopeOf(v.name).get(v.name);
+    }
+
+    @Override
+    public Object visitAssignment(AST.Assignment a) {
+        Object value = AST.visit(a.value, this);
+        Map<String, Object> scope = scopeOf(a.name);
+        Object like = scope.get(a.name);
+        if (like != null) value = convert(value, like);
+        scope.put(a.name, value);
+        return value;
+    }
+
+    @Override
+    public Object visitGrouping(AST.Grouping g) {
+        return AST.visit(g.expression, this);
+    }
+
+    @Override
+    public Object visitUnary(AST.Unary u) {
+        Object right = AST.visit(u.right, this);
+        switch (u.operator) {
+            case "!": return !(Boolean) right;
+            case "-":
+                if (right instanceof Integer i) return -i;
+                if (right instanceof Float x) return -x;
+                return -((Number) right).doubleValue();
+            default: throw new RuntimeException("Unsupported operator: " + u.operator);
+        }
+    }
+
+    @Override
+    public Object visitBinary(AST.Binary b) {
+        switch (b.operator) {
+            case "and": return (Boolean) AST.visit(b.left, this) && (Boolean) AST.visit(b.right, this);
+            case "or": return (Boolean) AST.visit(b.left, this) || (Boolean) AST.visit(b.right, this);
+            default: break;
+        }
+        Object left = AST.visit(b.left, this);
+        Object right = AST.visit(b.right, this);
+        if (b.operator.equals("+") && (left instanceof String || right instanceof String)) {
+            return String.valueOf(left) + right;
+        }
+        if (b.operator.equals("==")) return left.equals(right) || numeric(left, right) && number(left) == number(right);
+        if (b.operator.equals("!=")) return !(left.equals(right) || numeric(left, right) && number(left) == number(right));
+        if (left instanceof Double || right instanceof Double || left instanceof Float || right instanceof Float) {
+            double x = number(left), y = number(right);
+            boolean single = !(left instanceof Double || right instanceof Double);
+            switch (b.operator) {
+                case "+": return single ? (Object) (float) (x + y) : (Object) (x + y);
+                case "-": return single ? (Object) (float) (x - y) : (Object) (x - y);
+                case "*": return single ? (Object) (float) (x * y) : (Object) (x * y);
+                case "/": return single ? (Object) (float) (x / y) : (Object) (x / y);
+                case "<": return x < y;
+                case "<=": return x <= y;
+                case ">": return x > y;
+                case ">=": return x >= y;
+                default: throw new RuntimeException("Unsupported operator: " + b.operator);
+            }
+        }
+        int x = (int) number(left), y = (int) number(right);
+        switch (b.operator) {
+            case "+": return x + y;
+            case "-": return x - y;
+            case "*": return x * y;
+            case "/": return x / y;
+            case "<": return x < y;
+            case "<=": return x <= y;
+            case ">": return x > y;
+            case ">=": return x >= y;
+            default: throw new RuntimeException("Unsupported operator: " + b.operator);
+        }
+    }
+
+    private static boolean numeric(Object left, Object right) {
+        return (left instanceof Number || left instanceof Character) && (right instanceof Number || right instanceof Character);
+    }
+
+    private static double number(Object value) {
+        return value instanceof Character c ? c : ((Number) value).doubleValue();
+    }
+}
@@ -0,0 +1,30 @@
+package compiler;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class ParserBenchmark {
+
+    // parse only: tokens were lexed in setup
+    @Benchmark
+    public AST.Program parseProgram(Workload w) {
+        return new parser(w.tokens).parseProgram();
+    }
+
+    // lex + parse with tokens pulled on demand, as Compiler does it
+    @Benchmark
+    public AST.Program lexAndParse(Workload w) {
+        return new parser(new TableLexer(w.chars)).parseProgram();
+    }
+}
@@ -0,0 +1,99 @@
+package compiler;
+
+// Synthetic proglang sources for the benchmarks. Every shape scales with one
+// size knob and produces a program that lexes, parses and passes semantic
+// analysis, so each phase does its full work.
+public final class Programs {
+    public enum Shape {
+        // size statements side by side: declarations, assignments, ug/edi, samtang
+        WIDE,
+        // blocks nested size levels deep, a declaration at every level
+        DEEP,
+        // ten declarations, each initialized by a size-term int expression
+        CHAIN,
+        // size string declarations, concatenations and prints
+        STRINGS
+    }
+
+    private Programs() {}
+
+    static String generate(Shape shape, int size) {
+        StringBuilder sb = new StringBuilder();
+        switch (shape) {
+            case WIDE: wide(sb, size); break;
+            case DEEP: deep(sb, size); break;
+            case CHAIN: chain(sb, size); break;
+            case STRINGS: strings(sb, size); break;
+        }
+        return sb.toString();
+    }
+
+    private static void wide(StringBuilder sb, int size) {
+        sb.append("tibuok v0 = 1;\n");
+        for (int i = 1; i < size; i++) {
+            int last = i / 4 * 4;  // most recent tibuok
+            switch (i % 4) {
+                case 0:
+                    sb.append("tibuok v").append(i).append(" = ").append(i).append(" * 3 + v").append(i - 4).append(";\n");
+                    break;
+                case 1:
+                    sb.append("duhay d").append(i).append(" = ").append(i).append(".5 / 2.5 + 1.25;\n");
+                    break;
+                case 2:
+                    sb.append("ug (v").append(last).append(" > 10) { v").append(last).append(" = v").append(last)
+                      .append(" - 1; } edi { v").append(last).append(" = v").append(last).append(" + 1; }\n");
+                    break;
+                default:
+                    sb.append("samtang (v").append(last).append(" < 5) { v").append(last).append(" = v").append(last)
+                      .append(" + 2; }\n");
+                    break;
+            }
+        }
+    }
+
+    private static void deep(StringBuilder sb, int size) {
+        sb.append("tibuok d = 0;\n");
+        for (int level = 0; level < size; level++) {
+            switch (level % 3) {
+                case 0: sb.append("ug (d < ").append(level).append(") {\n"); break;
+                case 1: sb.append("samtang (d > ").append(level).append(") {\n"); break;
+                default: sb.append("{\n"); break;
+            }
+            sb.append("tibuok x").append(level).append(" = d + ").append(level).append(";\n");
+        }
+        for (int level = size - 1; level >= 0; level--) {
+            sb.append("d = d + x").append(level).append(";\n}\n");
+        }
+    }
+
+    private static void chain(StringBuilder sb, int size) {
+        sb.append("tibuok a = 3;\ntibuok b = 5;\n");
+        String[] ops = {" + ", " * ", " - ", " / "};
+        for (int s = 0; s < 10; s++) {
+            sb.append("tibuok c").append(s).append(" = a");
+            for (int t = 1; t < size; t++) {
+                sb.append(ops[t % ops.length]);
+                if (t % 7 == 0) sb.append("(a - ").append(t).append(')');
+                else if (t % 2 == 0) sb.append('b');
+                else sb.append(t);
+            }
+            sb.append(";\n");
+        }
+    }
+
+    private static void strings(StringBuilder sb, int size) {
+        sb.append("karhan n = \"7\";\n");
+        for (int i = 0; i < size; i++) {
+            if (i % 3 == 0) {
+                sb.append("karhan s").append(i).append(" = \"line ").append(i)
+                  .append(" of a fairly ordinary string literal\";\n");
+            } else if (i % 3 == 1) {
+                int s = i / 3 * 3;
+                sb.append("karhan t").append(i).append(" = s").append(s).append(" + \" / \" + n + \" items, \" + s")
+                  .append(s).append(";\n");
+            } else {
+                sb.append("imprenta_gawas(\"value: \" + t").append(i - 1).append(" + \"!\");\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package compiler;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss16m")
+public class SemanticBenchmark {
+
+    // analyze() reports through Trace, silent at the default level
+    @Benchmark
+    public void analyze(Workload w) {
+        new SemanticAnalyzer().analyze(w.program);
+    }
+
+    @Benchmark
+    public Object check(Workload w) {
+        return new SemanticAnalyzer().check(w.program);
+    }
+
+    @Benchmark
+    public AST.Program optimize(Workload w) {
+        return new Optimizer().optimize(w.program);
+    }
+}
@@ -0,0 +1,34 @@
+package compiler;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// One synthetic program in every form a phase can start from, built once per
+// trial so each benchmark times only its own phase.
+@State(Scope.Benchmark)
+public class Workload {
+    @Param({"WIDE", "DEEP", "CHAIN", "STRINGS"})
+    public Programs.Shape shape;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    public String source;
+    public char[] chars;
+    public TokenBuffer tokens;
+    public AST.Program program;
+    public AST.Program optimized;
+    public byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        source = Programs.generate(shape, size);
+        chars = source.toCharArray();
+        tokens = TokenBuffer.lex(chars);
+        program = new parser(tokens).parseProgram();
+        optimized = new Optimizer().optimize(program);
+        encoded = AstFormat.write(optimized);
+    }
+}
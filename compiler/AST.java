@@ -4,6 +4,64 @@ import java.util.List;
 
 public class AST {
 
+    // Every node knows where it came from: the source offset of its first
+    // token (of the operator for Binary and Assignment), -1 for nodes made up
+    // by later phases. Lines and columns are derived on demand via LineIndex.
+    public abstract static class Node {
+        public final int kind;  // one of the node kind constants below
+        public int offset = -1;
+
+        Node(int kind) {
+            this.kind = kind;
+        }
+    }
+
+    // Node kinds, dense per family so dispatch is a table switch.
+    public static final int VAR_DECL = 0;
+    public static final int PRINT = 1;
+    public static final int EXPRESSION_STMT = 2;
+    public static final int BLOCK = 3;
+    public static final int IF_STMT = 4;
+    public static final int WHILE_STMT = 5;
+    public static final int FOR_STMT = 6;
+
+    public static final int LITERAL = 0;
+    public static final int VARIABLE = 1;
+    public static final int BINARY = 2;
+    public static final int UNARY = 3;
+    public static final int GROUPING = 4;
+    public static final int ASSIGNMENT = 5;
+
+    // Shared dispatch for every pass: one switch on the kind field and a
+    // direct call. Unlike an instanceof chain, the last kind costs no more
+    // than the first, and unlike a virtual accept() there is no interface
+    // call per node: visit is small enough to be inlined into each pass,
+    // where the visitor's type is known and its visit methods inline too.
+    public static <R> R visit(Stmt stmt, StmtVisitor<R> visitor) {
+        switch (((Node) stmt).kind) {
+            case VAR_DECL: return visitor.visitVarDecl((VarDecl) stmt);
+            case PRINT: return visitor.visitPrint((Print) stmt);
+            case EXPRESSION_STMT: return visitor.visitExpressionStmt((ExpressionStmt) stmt);
+            case BLOCK: return visitor.visitBlock((Block) stmt);
+            case IF_STMT: return visitor.visitIfStmt((IfStmt) stmt);
+            case WHILE_STMT: return visitor.visitWhileStmt((WhileStmt) stmt);
+            case FOR_STMT: return visitor.visitForStmt((ForStmt) stmt);
+            default: throw new IllegalStateException("Not a statement kind: " + ((Node) stmt).kind);
+        }
+    }
+
+    public static <R> R visit(Expr expr, ExprVisitor<R> visitor) {
+        switch (((Node) expr).kind) {
+            case LITERAL: return visitor.visitLiteral((Literal) expr);
+            case VARIABLE: return visitor.visitVariable((Variable) expr);
+            case BINARY: return visitor.visitBinary((Binary) expr);
+            case UNARY: return visitor.visitUnary((Unary) expr);
+            case GROUPING: return visitor.visitGrouping((Grouping) expr);
+            case ASSIGNMENT: return visitor.visitAssignment((Assignment) expr);
+            default: throw new IllegalStateException("Not an expression kind: " + ((Node) expr).kind);
+        }
+    }
+
     // Root Node
     public static class Program {
         public final List<Stmt> statements;
@@ -13,70 +71,96 @@ public class AST {
     }
 
     // ---------------- STATEMENTS ----------------
-    public interface Stmt {}
+    // Both node families are sealed. A pass implements the matching visitor
+    // and walks the tree through AST.visit, so adding a node kind means
+    // adding a visitor method that every pass must then implement.
+    public sealed interface Stmt permits VarDecl, Print, ExpressionStmt, Block, IfStmt, WhileStmt, ForStmt {}
+
+    public interface StmtVisitor<R> {
+        R visitVarDecl(VarDecl s);
+        R visitPrint(Print s);
+        R visitExpressionStmt(ExpressionStmt s);
+        R visitBlock(Block s);
+        R visitIfStmt(IfStmt s);
+        R visitWhileStmt(WhileStmt s);
+        R visitForStmt(ForStmt s);
+    }
 
-    public static class VarDecl implements Stmt {
+    public static final class VarDecl extends Node implements Stmt {
         public final String type;
         public final String name;
+        public final int symbol;  // Symbols id of name
         public final Expr initializer;
 
-        public VarDecl(String type, String name, Expr initializer) {
+        public VarDecl(String type, int symbol, Expr initializer) {
+            super(VAR_DECL);
             this.type = type;
-            this.name = name;
+            this.name = Symbols.name(symbol);
+            this.symbol = symbol;
             this.initializer = initializer;
         }
+
+        public VarDecl(String type, String name, Expr initializer) {
+            this(type, Symbols.intern(name), initializer);
+        }
     }
 
-    public static class Print implements Stmt {
+    public static final class Print extends Node implements Stmt {
         public final Expr expression;
         public Print(Expr expression) {
+            super(PRINT);
             this.expression = expression;
         }
     }
 
-    public static class ExpressionStmt implements Stmt {
+    public static final class ExpressionStmt extends Node implements Stmt {
         public final Expr expression;
         public ExpressionStmt(Expr expression) {
+            super(EXPRESSION_STMT);
             this.expression = expression;
         }
     }
 
-    public static class Block implements Stmt {
+    public static final class Block extends Node implements Stmt {
         public final List<Stmt> statements;
         public Block(List<Stmt> statements) {
+            super(BLOCK);
             this.statements = statements;
         }
     }
 
-    public static class IfStmt implements Stmt {
+    public static final class IfStmt extends Node implements Stmt {
         public final Expr condition;
         public final Stmt thenBranch;
         public final Stmt elseBranch;
 
         public IfStmt(Expr condition, Stmt thenBranch, Stmt elseBranch) {
+            super(IF_STMT);
             this.condition = condition;
             this.thenBranch = thenBranch;
             this.elseBranch = elseBranch;
         }
     }
 
-    public static class WhileStmt implements Stmt {
+    public static final class WhileStmt extends Node implements Stmt {
         public final Expr condition;
         public final Stmt body;
 
         public WhileStmt(Expr condition, Stmt body) {
+            super(WHILE_STMT);
             this.condition = condition;
             this.body = body;
         }
     }
 
-    public static class ForStmt implements Stmt {
+    public static final class ForStmt extends Node implements Stmt {
         public final Stmt initializer;
         public final Expr condition;
         public final Expr increment;
         public final Stmt body;
 
         public ForStmt(Stmt initializer, Expr condition, Expr increment, Stmt body) {
+            super(FOR_STMT);
             this.initializer = initializer;
             this.condition = condition;
             this.increment = increment;
@@ -85,46 +169,87 @@ public class AST {
     }
 
     // ---------------- EXPRESSIONS ----------------
-    public interface Expr {}
+    public sealed interface Expr permits Literal, Variable, Binary, Unary, Grouping, Assignment {}
+
+    public interface ExprVisitor<R> {
+        R visitLiteral(Literal e);
+        R visitVariable(Variable e);
+        R visitBinary(Binary e);
+        R visitUnary(Unary e);
+        R visitGrouping(Grouping e);
+        R visitAssignment(Assignment e);
+    }
 
-    public static class Literal implements Expr {
+    public static final class Literal extends Node implements Expr {
         public final Object value;
         public Literal(Object value) {
+            super(LITERAL);
             this.value = value;
         }
     }
 
-    public static class Variable implements Expr {
+    public static final class Variable extends Node implements Expr {
         public final String name;
+        public final int symbol;
+        public Variable(int symbol) {
+            super(VARIABLE);
+            this.name = Symbols.name(symbol);
+            this.symbol = symbol;
+        }
+
         public Variable(String name) {
-            this.name = name;
+            this(Symbols.intern(name));
         }
     }
 
-    public static class Binary implements Expr {
+    public static final class Binary extends Node implements Expr {
         public final Expr left;
         public final String operator;
+        public final Operator op;  // operator resolved once; null if the text is not one, which
+                                   // only hand-built nodes can have and SemanticAnalyzer reports
         public final Expr right;
         public Binary(Expr left, String operator, Expr right) {
+            super(BINARY);
             this.left = left;
             this.operator = operator;
+            this.op = Operator.of(operator);
+            this.right = right;
+        }
+    }
+
+    public static final class Unary extends Node implements Expr {
+        public final String operator;
+        public final Operator op;
+        public final Expr right;
+        public Unary(String operator, Expr right) {
+            super(UNARY);
+            this.operator = operator;
+            this.op = Operator.of(operator);
             this.right = right;
         }
     }
 
-    public static class Grouping implements Expr {
+    public static final class Grouping extends Node implements Expr {
         public final Expr expression;
         public Grouping(Expr expression) {
+            super(GROUPING);
             this.expression = expression;
         }
     }
 
-    public static class Assignment implements Expr {
+    public static final class Assignment extends Node implements Expr {
         public final String name;
+        public final int symbol;
         public final Expr value;
-        public Assignment(String name, Expr value) {
-            this.name = name;
+        public Assignment(int symbol, Expr value) {
+            super(ASSIGNMENT);
+            this.name = Symbols.name(symbol);
+            this.symbol = symbol;
             this.value = value;
         }
+
+        public Assignment(String name, Expr value) {
+            this(Symbols.intern(name), value);
+        }
     }
 }
@@ -0,0 +1,67 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Node factory used by the parser. Keeps tree building cheap on large inputs:
+// statement lists are collected on one reusable stack and copied out at their
+// exact size, and identifier names (interned by Symbols) and literal values
+// are shared, so repeated occurrences only cost the node itself.
+final class AstBuilder {
+    private final ArrayList<AST.Stmt> stack = new ArrayList<>();
+    private final Map<String, Object> values = new HashMap<>();
+
+    // =============== STATEMENT LISTS ===============
+    int mark() {
+        return stack.size();
+    }
+
+    void push(AST.Stmt stmt) {
+        stack.add(stmt);
+    }
+
+    // Pops everything pushed since mark into an exactly sized list.
+    List<AST.Stmt> listFrom(int mark) {
+        AST.Stmt[] items = stack.subList(mark, stack.size()).toArray(new AST.Stmt[0]);
+        stack.subList(mark, stack.size()).clear();
+        return Arrays.asList(items);
+    }
+
+    // =============== LEAVES ===============
+    AST.Variable variable(int symbol) {
+        return new AST.Variable(symbol);
+    }
+
+    // symbol is the Symbols id of a string literal's contents. Returns null
+    // for an integer literal that does not fit in an int; the parser reports it.
+    AST.Literal literal(int kind, String text, int symbol) {
+        if (kind == TokenKind.TRUE) return new AST.Literal(Boolean.TRUE);
+        if (kind == TokenKind.FALSE) return new AST.Literal(Boolean.FALSE);
+        if (kind == TokenKind.STRING) return new AST.Literal(Symbols.name(symbol));
+        Object value = values.get(text);
+        if (value == null) {
+            value = parseValue(kind, text);
+            if (value == null) return null;
+            values.put(text, value);
+        }
+        return new AST.Literal(value);
+    }
+
+    private static Object parseValue(int kind, String text) {
+        switch (kind) {
+            case TokenKind.INT:
+                try {
+                    return Integer.valueOf(text);
+                } catch (NumberFormatException e) {
+                    return null;  // out of range
+                }
+            case TokenKind.DOUBLE:
+                return Double.valueOf(text);
+            default:
+                throw new RuntimeException("Not a literal: " + text);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package compiler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Versioned binary form of an AST.Program, so a parsed program can be stored
+// and shipped without its source text.
+//
+//   magic "PLAS", version      4 bytes, varint
+//   string table               varint count, then (varint length, UTF-8 bytes)
+//   statements                 varint count, then one node per statement
+//
+// A node is a tag byte, its source offset plus one as a varint (0 when
+// unknown; version 2 on), then its children in field order: nested nodes,
+// varint string-table indexes for names and operators, varint counts for
+// lists and NONE for an absent child. Every identifier, type and operator is
+// stored once in the table and decoded once on load, so all uses share one
+// String. Reading works straight off a ByteBuffer, including a memory-mapped
+// file, without copying the input first. Nodes nested deeper than MAX_DEPTH
+// are rejected like any other damage, so crafted input cannot overflow the
+// reader's stack.
+public final class AstFormat {
+    public static final int VERSION = 2;  // 2 added source offsets; 1 is still read
+    public static final String EXTENSION = ".ast";
+    private static final int MAGIC = 0x504C4153;  // "PLAS"
+    // deeper than the parser gets on a default thread stack, shallow enough to decode on one
+    static final int MAX_DEPTH = 2000;
+
+    // =============== TAGS ===============
+    private static final byte NONE = 0;
+    private static final byte VAR_DECL = 1;
+    private static final byte PRINT = 2;
+    private static final byte EXPRESSION_STMT = 3;
+    private static final byte BLOCK = 4;
+    private static final byte IF = 5;
+    private static final byte WHILE = 6;
+    private static final byte FOR = 7;
+    private static final byte INT = 16;
+    private static final byte DOUBLE = 17;
+    private static final byte STRING = 18;
+    private static final byte TRUE = 19;
+    private static final byte FALSE = 20;
+    private static final byte VARIABLE = 21;
+    private static final byte BINARY = 22;
+    private static final byte UNARY = 23;
+    private static final byte GROUPING = 24;
+    private static final byte ASSIGNMENT = 25;
+
+    private AstFormat() {}
+
+    // =============== WRITING ===============
+    public static byte[] write(AST.Program program) {
+        Writer nodes = new Writer();
+        nodes.varint(program.statements.size());
+        for (AST.Stmt s : program.statements) nodes.stmt(s);
+
+        Writer out = new Writer();
+        out.int32(MAGIC);
+        out.varint(VERSION);
+        out.varint(nodes.strings.size());
+        for (String s : nodes.table) {
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            out.varint(utf8.length);
+            out.bytes(utf8, utf8.length);
+        }
+        out.bytes(nodes.buf, nodes.size);
+        return Arrays.copyOf(out.buf, out.size);
+    }
+
+    private static final class Writer implements AST.StmtVisitor<Void>, AST.ExprVisitor<Void> {
+        byte[] buf = new byte[256];
+        int size;
+        final Map<String, Integer> strings = new HashMap<>();
+        final List<String> table = new ArrayList<>();
+
+        void stmt(AST.Stmt stmt) {
+            if (stmt == null) put(NONE);
+            else AST.visit(stmt, this);
+        }
+
+        void expr(AST.Expr expr) {
+            if (expr == null) put(NONE);
+            else AST.visit(expr, this);
+        }
+
+        @Override
+        public Void visitVarDecl(AST.VarDecl v) {
+            node(VAR_DECL, v);
+            string(v.type);
+            string(v.name);
+            expr(v.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitPrint(AST.Print p) {
+            node(PRINT, p);
+            expr(p.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(AST.ExpressionStmt e) {
+            node(EXPRESSION_STMT, e);
+            expr(e.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(AST.Block b) {
+            node(BLOCK, b);
+            varint(b.statements.size());
+            for (AST.Stmt s : b.statements) stmt(s);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(AST.IfStmt i) {
+            node(IF, i);
+            expr(i.condition);
+            stmt(i.thenBranch);
+            stmt(i.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(AST.WhileStmt w) {
+            node(WHILE, w);
+            expr(w.condition);
+            stmt(w.body);
+            return null;
+        }
+
+        @Override
+        public Void visitForStmt(AST.ForStmt f) {
+            node(FOR, f);
+            stmt(f.initializer);
+            expr(f.condition);
+            expr(f.increment);
+            stmt(f.body);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(AST.Literal l) {
+            literal(l);
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(AST.Variable v) {
+            node(VARIABLE, v);
+            string(v.name);
+            return null;
+        }
+
+        @Override
+        public Void visitBinary(AST.Binary b) {
+            node(BINARY, b);
+            string(b.operator);
+            expr(b.left);
+            expr(b.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnary(AST.Unary u) {
+            node(UNARY, u);
+            string(u.operator);
+            expr(u.right);
+            return null;
+        }
+
+        @Override
+        public Void visitGrouping(AST.Grouping g) {
+            node(GROUPING, g);
+            expr(g.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(AST.Assignment a) {
+            node(ASSIGNMENT, a);
+            string(a.name);
+            expr(a.value);
+            return null;
+        }
+
+        void literal(AST.Literal l) {
+            Object value = l.value;
+            if (value instanceof Integer i) {
+                node(INT, l);
+                varint((i << 1) ^ (i >> 31));  // zigzag: small negatives stay short
+            } else if (value instanceof Double d) {
+                node(DOUBLE, l);
+                long bits = Double.doubleToRawLongBits(d);
+                int32((int) (bits >>> 32));
+                int32((int) bits);
+            } else if (value instanceof String s) {
+                node(STRING, l);
+                string(s);
+            } else if (value instanceof Boolean b) {
+                node(b ? TRUE : FALSE, l);
+            } else {
+                throw new IllegalArgumentException("Cannot encode literal: " + value);
+            }
+        }
+
+        void node(byte tag, AST.Node node) {
+            put(tag);
+            varint(node.offset + 1);
+        }
+
+        void string(String s) {
+            Integer index = strings.get(s);
+            if (index == null) {
+                index = table.size();
+                strings.put(s, index);
+                table.add(s);
+            }
+            varint(index);
+        }
+
+        void varint(int v) {
+            while ((v & ~0x7F) != 0) {
+                put((byte) (v & 0x7F | 0x80));
+                v >>>= 7;
+            }
+            put((byte) v);
+        }
+
+        void int32(int v) {
+            put((byte) (v >>> 24));
+            put((byte) (v >>> 16));
+            put((byte) (v >>> 8));
+            put((byte) v);
+        }
+
+        void bytes(byte[] b, int length) {
+            ensure(length);
+            System.arraycopy(b, 0, buf, size, length);
+            size += length;
+        }
+
+        void put(byte b) {
+            if (size == buf.length) ensure(1);
+            buf[size++] = b;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+
+    // =============== READING ===============
+    // Decodes from the buffer's position to its limit; the buffer itself is not modified.
+    public static AST.Program read(ByteBuffer buffer) {
+        Reader in = new Reader(buffer.duplicate());
+        try {
+            if (in.buf.getInt() != MAGIC) throw new IllegalArgumentException("Not an AST file");
+            int version = in.varint();
+            in.positions = version >= 2;
+            if (version < 1 || version > VERSION) throw new IllegalArgumentException("Unsupported AST format version " + version);
+            in.table = new String[in.count()];
+            for (int i = 0; i < in.table.length; i++) in.table[i] = in.utf8(in.count());
+            AST.Stmt[] statements = new AST.Stmt[in.count()];
+            for (int i = 0; i < statements.length; i++) statements[i] = in.stmt();
+            if (in.buf.hasRemaining()) throw new IllegalArgumentException("Trailing bytes after AST");
+            return new AST.Program(Arrays.asList(statements));
+        } catch (java.nio.BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated or damaged AST data", e);
+        }
+    }
+
+    // The file is mapped, not read; only the decoded nodes end up on the heap.
+    public static AST.Program read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static final class Reader {
+        final ByteBuffer buf;
+        String[] table;
+        boolean positions;
+        int depth;  // nodes open on the way down to the current one
+
+        Reader(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        AST.Stmt stmt() {
+            byte tag = buf.get();
+            if (tag == NONE) return null;
+            enter();
+            AST.Stmt stmt = stmt(tag, offset());
+            depth--;
+            return stmt;
+        }
+
+        private AST.Stmt stmt(byte tag, int at) {
+            switch (tag) {
+                case VAR_DECL: return at(new AST.VarDecl(string(), string(), expr()), at);
+                case PRINT: return at(new AST.Print(expr()), at);
+                case EXPRESSION_STMT: return at(new AST.ExpressionStmt(expr()), at);
+                case BLOCK: {
+                    AST.Stmt[] body = new AST.Stmt[count()];
+                    for (int i = 0; i < body.length; i++) body[i] = stmt();
+                    return at(new AST.Block(Arrays.asList(body)), at);
+                }
+                case IF: return at(new AST.IfStmt(expr(), stmt(), stmt()), at);
+                case WHILE: return at(new AST.WhileStmt(expr(), stmt()), at);
+                case FOR: return at(new AST.ForStmt(stmt(), expr(), expr(), stmt()), at);
+                default: throw new IllegalArgumentException("Bad statement tag " + tag);
+            }
+        }
+
+        AST.Expr expr() {
+            byte tag = buf.get();
+            if (tag == NONE) return null;
+            enter();
+            AST.Expr expr = expr(tag, offset());
+            depth--;
+            return expr;
+        }
+
+        private AST.Expr expr(byte tag, int at) {
+            switch (tag) {
+                case INT: {
+                    int v = varint();
+                    return at(new AST.Literal((v >>> 1) ^ -(v & 1)), at);
+                }
+                case DOUBLE: return at(new AST.Literal(Double.longBitsToDouble(buf.getLong())), at);
+                case STRING: return at(new AST.Literal(string()), at);
+                case TRUE: return at(new AST.Literal(Boolean.TRUE), at);
+                case FALSE: return at(new AST.Literal(Boolean.FALSE), at);
+                case VARIABLE: return at(new AST.Variable(string()), at);
+                case BINARY: {
+                    String op = operator();
+                    return at(new AST.Binary(expr(), op, expr()), at);
+                }
+                case UNARY: return at(new AST.Unary(operator(), expr()), at);
+                case GROUPING: return at(new AST.Grouping(expr()), at);
+                case ASSIGNMENT: return at(new AST.Assignment(string(), expr()), at);
+                default: throw new IllegalArgumentException("Bad expression tag " + tag);
+            }
+        }
+
+        void enter() {
+            if (++depth > MAX_DEPTH) throw new IllegalArgumentException("AST nested deeper than " + MAX_DEPTH);
+        }
+
+        int offset() {
+            return positions ? varint() - 1 : -1;
+        }
+
+        static <N extends AST.Node> N at(N node, int offset) {
+            node.offset = offset;
+            return node;
+        }
+
+        String string() {
+            return table[varint()];
+        }
+
+        // only text the parser can produce, so every decoded node has its Operator
+        String operator() {
+            String text = string();
+            if (Operator.of(text) == null) throw new IllegalArgumentException("Bad operator " + text);
+            return text;
+        }
+
+        String utf8(int length) {
+            if (buf.hasArray()) {
+                int at = buf.arrayOffset() + buf.position();
+                buf.position(buf.position() + length);
+                return new String(buf.array(), at, length, StandardCharsets.UTF_8);
+            }
+            ByteBuffer slice = buf.slice(buf.position(), length);
+            buf.position(buf.position() + length);
+            return StandardCharsets.UTF_8.decode(slice).toString();
+        }
+
+        // every counted item takes at least one byte, so damaged counts fail before allocating
+        int count() {
+            int n = varint();
+            if (n < 0 || n > buf.remaining()) throw new IllegalArgumentException("Bad count " + n);
+            return n;
+        }
+
+        int varint() {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = buf.get();
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+}
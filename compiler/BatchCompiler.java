@@ -0,0 +1,199 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+// Compiles many independent source files at once. Every file is its own task
+// on a work-stealing ForkJoinPool and gets fresh lexer, parser, analyzer,
+// optimizer and generator instances, so tasks share nothing but the
+// read-only lexer tables and the Symbols interner, leased per file. Each task
+// writes only its own slot of the result array, and the results are reported
+// in input order.
+public class BatchCompiler {
+    public static final String SOURCE_EXTENSION = ".txt";
+
+    private final int threads;
+    private final boolean emitClass;
+    private final CompileCache cache;  // null when caching is off
+
+    public BatchCompiler(int threads, boolean emitClass) {
+        this(threads, emitClass, null);
+    }
+
+    public BatchCompiler(int threads, boolean emitClass, CompileCache cache) {
+        this.threads = threads;
+        this.emitClass = emitClass;
+        this.cache = cache;
+    }
+
+    // Outcome of one file.
+    public static final class Result {
+        public final Path path;
+        public long bytesIn;
+        public long bytesOut;
+        public int semanticErrors;
+        public String error;  // null when the file compiled
+
+        Result(Path path) {
+            this.path = path;
+        }
+    }
+
+    // =============== INPUT ===============
+    // Files given directly are taken as-is; directories are walked for sources.
+    public static List<Path> collect(List<Path> roots) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                files.add(root);
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().endsWith(SOURCE_EXTENSION))
+                    .sorted()
+                    .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    // =============== COMPILATION ===============
+    public Result[] compile(List<Path> files) {
+        Result[] results = new Result[files.size()];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Task(files, results, 0, files.size()));
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    // Splits the file range in halves until one file is left, so idle workers
+    // can steal the other half of any range still waiting.
+    private final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final Result[] results;
+        private final int from, to;
+
+        Task(List<Path> files, Result[] results, int from, int to) {
+            this.files = files;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 0) return;  // no files at all
+            if (to - from == 1) {
+                Symbols.acquire();
+                try {
+                    results[from] = compileOne(files.get(from));
+                } finally {
+                    Symbols.release();
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Task(files, results, from, mid), new Task(files, results, mid, to));
+        }
+    }
+
+    private Result compileOne(Path path) {
+        Result result = new Result(path);
+        try {
+            result.bytesIn = Files.size(path);
+            AST.Program program = null;
+            CompileCache.Entry entry = null;
+            if (cache != null) {
+                // 1️⃣–3️⃣ come from the cache when these bytes were compiled before
+                entry = cache.compile(path);
+                result.semanticErrors = entry.semanticErrors.size();
+                result.bytesOut = entry.code.length();
+            } else {
+                // 1️⃣ Lex + parse
+                program = new Lexical_Analyzer("").parse(path, false);
+
+                // 2️⃣ Semantic analysis (reported, not fatal)
+                result.semanticErrors = new SemanticAnalyzer().check(program).size();
+
+                // 3️⃣ Optimization + code generation
+                program = new Optimizer().optimize(program);
+                // only the size is reported, so the code is counted as it streams out
+                Counter counter = new Counter();
+                new CodeGenerator().generate(program, counter);
+                result.bytesOut = counter.chars;
+            }
+
+            if (emitClass) {
+                if (program == null) program = entry.program();
+                String className = Compiler.className(path);
+                byte[] bytes = new BytecodeGenerator().generate(program, className);
+                Path parent = path.toAbsolutePath().getParent();
+                Files.write(parent.resolve(className + ".class"), bytes);
+                result.bytesOut += bytes.length;
+            }
+        } catch (IOException | RuntimeException e) {
+            result.error = e.toString();
+        }
+        return result;
+    }
+
+    // Sink that keeps nothing but the number of chars written to it.
+    private static final class Counter implements Appendable {
+        long chars;
+
+        @Override
+        public Appendable append(CharSequence csq) {
+            chars += csq.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            chars += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            chars++;
+            return this;
+        }
+    }
+
+    // =============== REPORT ===============
+    public static int report(Result[] results, long nanos, int threads, PrintStream out) {
+        int failed = 0;
+        int withErrors = 0;
+        long bytesIn = 0;
+        long bytesOut = 0;
+        for (Result r : results) {
+            if (r.error != null) {
+                System.err.println(r.path + ": " + r.error);
+                failed++;
+                continue;
+            }
+            if (r.semanticErrors > 0) withErrors++;
+            bytesIn += r.bytesIn;
+            bytesOut += r.bytesOut;
+        }
+        double seconds = nanos / 1e9;
+        out.printf("🔹 BATCH: %d files (%d failed, %d with semantic errors) in %.1f ms on %d threads%n",
+                results.length, failed, withErrors, nanos / 1e6, threads);
+        out.printf("   %.1f files/s, %.2f MB/s in, %d bytes generated%n",
+                results.length / seconds, bytesIn / seconds / (1 << 20), bytesOut);
+        return failed;
+    }
+}
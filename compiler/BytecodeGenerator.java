@@ -0,0 +1,510 @@
+package compiler;
+
+import compiler.ClassFileWriter.Code;
+import compiler.ClassFileWriter.Label;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static compiler.ClassFileWriter.*;
+
+// JVM backend: lowers an AST.Program into a class whose main() runs the program.
+// Top-level variables become static fields and top-level statements are packed
+// into part methods that stay under HotSpot's 8000 byte limit for JIT
+// compilation; everything inside a block lives in JVM locals.
+public class BytecodeGenerator implements AST.StmtVisitor<Void>, AST.ExprVisitor<ValueType> {
+    private static final int SPLIT_AT = 4000;
+
+    // JVM view of each value type
+    private static String descriptor(ValueType type) {
+        switch (type) {
+            case INT: return "I";
+            case FLOAT: return "F";
+            case DOUBLE: return "D";
+            case CHAR: return "C";
+            case BOOLEAN: return "Z";
+            default: return "Ljava/lang/String;";
+        }
+    }
+
+    private static int size(ValueType type) {
+        return type == ValueType.DOUBLE ? 2 : 1;
+    }
+
+    private static int load(ValueType type) {
+        switch (type) {
+            case FLOAT: return FLOAD;
+            case DOUBLE: return DLOAD;
+            case STRING: return ALOAD;
+            default: return ILOAD;
+        }
+    }
+
+    private static int store(ValueType type) {
+        switch (type) {
+            case FLOAT: return FSTORE;
+            case DOUBLE: return DSTORE;
+            case STRING: return ASTORE;
+            default: return ISTORE;
+        }
+    }
+
+    private static final class Local {
+        final int slot;
+        final ValueType type;
+
+        Local(int slot, ValueType type) {
+            this.slot = slot;
+            this.type = type;
+        }
+    }
+
+    private ClassFileWriter cf;
+    private String owner;
+    private final Map<String, ValueType> globals = new HashMap<>();
+    private final Deque<Map<String, Local>> scopes = new ArrayDeque<>();
+    private Code code;
+    private int nextLocal;
+    private final Types types = new Types();
+
+    public byte[] generate(AST.Program program, String className) {
+        owner = className.replace('.', '/');
+        cf = new ClassFileWriter(owner);
+        globals.clear();
+
+        List<String> parts = new ArrayList<>();
+        for (AST.Stmt stmt : program.statements) {
+            if (code == null || code.size() > SPLIT_AT) {
+                endPart();
+                String part = "part" + parts.size();
+                parts.add(part);
+                code = cf.method(ACC_PRIVATE | ACC_STATIC, part, "()V", 0);
+                nextLocal = 0;
+            }
+            generateStmt(stmt);  // top-level VarDecls become static fields
+        }
+        endPart();
+
+        Code main = cf.method(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V", 1);
+        for (String part : parts) {
+            main.member(INVOKESTATIC, cf.methodRef(owner, part, "()V"), 0);
+        }
+        main.op(RETURN, 0);
+        main.end();
+        return cf.toByteArray();
+    }
+
+    private void endPart() {
+        if (code == null) return;
+        code.op(RETURN, 0);
+        code.end();
+        code = null;
+    }
+
+    // =============== STATEMENTS ===============
+    private void declareGlobal(AST.VarDecl v) {
+        if (globals.containsKey(v.name)) throw new RuntimeException("Variable '" + v.name + "' already declared.");
+        ValueType type = ValueType.declared(v.type);
+        cf.field(ACC_PRIVATE | ACC_STATIC, v.name, descriptor(type));
+        globals.put(v.name, type);
+        if (v.initializer != null) {
+            assign(v.initializer, type);
+            code.member(PUTSTATIC, cf.fieldRef(owner, v.name, descriptor(type)), -size(type));
+        }
+    }
+
+    private void generateStmt(AST.Stmt stmt) {
+        AST.visit(stmt, this);
+    }
+
+    @Override
+    public Void visitVarDecl(AST.VarDecl v) {
+        ValueType type = ValueType.declared(v.type);
+        Map<String, Local> scope = scopes.peek();
+        if (scope == null) {
+            declareGlobal(v);
+            return null;
+        }
+        if (scope.containsKey(v.name)) throw new RuntimeException("Variable '" + v.name + "' already declared.");
+        Local local = new Local(nextLocal, type);
+        nextLocal += size(type);
+        code.useLocals(nextLocal);
+        if (v.initializer != null) assign(v.initializer, type);
+        else pushDefault(type);
+        code.local(store(type), local.slot, -size(type));
+        scope.put(v.name, local);
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(AST.Print p) {
+        code.member(GETSTATIC, cf.fieldRef("java/lang/System", "out", "Ljava/io/PrintStream;"), 1);
+        ValueType type = value(p.expression);
+        code.member(INVOKEVIRTUAL, cf.methodRef("java/io/PrintStream", "println", "(" + descriptor(type) + ")V"), -1 - size(type));
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(AST.ExpressionStmt e) {
+        ValueType type = value(e.expression);
+        code.op(size(type) == 2 ? POP2 : POP, -size(type));
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(AST.Block b) {
+        int saved = nextLocal;
+        scopes.push(new HashMap<>());
+        for (AST.Stmt s : b.statements) {
+            generateStmt(s);
+        }
+        scopes.pop();
+        nextLocal = saved;
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(AST.IfStmt i) {
+        Label otherwise = code.label();
+        jumpIfFalse(i.condition, otherwise);
+        generateStmt(i.thenBranch);
+        if (i.elseBranch != null) {
+            Label end = code.label();
+            code.jump(GOTO, end, 0);
+            code.bind(otherwise);
+            generateStmt(i.elseBranch);
+            code.bind(end);
+        } else {
+            code.bind(otherwise);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(AST.WhileStmt w) {
+        Label top = code.label();
+        Label end = code.label();
+        code.bind(top);
+        jumpIfFalse(w.condition, end);
+        generateStmt(w.body);
+        code.jump(GOTO, top, 0);
+        code.bind(end);
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(AST.ForStmt f) {
+        int saved = nextLocal;
+        scopes.push(new HashMap<>());
+        if (f.initializer != null) generateStmt(f.initializer);
+        Label top = code.label();
+        Label end = code.label();
+        code.bind(top);
+        if (f.condition != null) jumpIfFalse(f.condition, end);
+        generateStmt(f.body);
+        if (f.increment != null) {
+            ValueType type = value(f.increment);
+            code.op(size(type) == 2 ? POP2 : POP, -size(type));
+        }
+        code.jump(GOTO, top, 0);
+        code.bind(end);
+        scopes.pop();
+        nextLocal = saved;
+        return null;
+    }
+
+    // =============== EXPRESSIONS ===============
+    // Pushes the value of expr converted to the given declared type.
+    private void assign(AST.Expr expr, ValueType target) {
+        convert(value(expr), target);
+    }
+
+    private ValueType value(AST.Expr expr) {
+        return AST.visit(expr, this);
+    }
+
+    @Override
+    public ValueType visitLiteral(AST.Literal l) {
+        Object v = l.value;
+        if (v instanceof Integer i) {
+            code.pushInt(i);
+            return ValueType.INT;
+        } else if (v instanceof Double d) {
+            code.pushDouble(d);
+            return ValueType.DOUBLE;
+        } else if (v instanceof Boolean b) {
+            code.pushInt(b ? 1 : 0);
+            return ValueType.BOOLEAN;
+        } else if (v instanceof String s) {
+            code.ldc(cf.string(s));
+            return ValueType.STRING;
+        }
+        throw new RuntimeException("Unsupported literal: " + v);
+    }
+
+    @Override
+    public ValueType visitVariable(AST.Variable v) {
+        Local local = lookup(v.name);
+        if (local != null) {
+            code.local(load(local.type), local.slot, size(local.type));
+            return local.type;
+        }
+        ValueType type = global(v.name);
+        code.member(GETSTATIC, cf.fieldRef(owner, v.name, descriptor(type)), size(type));
+        return type;
+    }
+
+    @Override
+    public ValueType visitAssignment(AST.Assignment a) {
+        Local local = lookup(a.name);
+        ValueType type = local != null ? local.type : global(a.name);
+        assign(a.value, type);
+        code.op(size(type) == 2 ? DUP2 : DUP, size(type));
+        if (local != null) code.local(store(type), local.slot, -size(type));
+        else code.member(PUTSTATIC, cf.fieldRef(owner, a.name, descriptor(type)), -size(type));
+        return type;
+    }
+
+    @Override
+    public ValueType visitGrouping(AST.Grouping g) {
+        return value(g.expression);
+    }
+
+    @Override
+    public ValueType visitUnary(AST.Unary u) {
+        if (u.op == Operator.NOT) {
+            ValueType type = value(u.right);
+            if (type != ValueType.BOOLEAN) throw new RuntimeException("Operator ! needs a BOOLEAN, found " + type);
+            code.op(ICONST_1, 1);
+            code.op(IXOR, -1);
+            return ValueType.BOOLEAN;
+        }
+        ValueType type = value(u.right);
+        if (!type.numeric()) throw new RuntimeException("Operator - needs a number, found " + type);
+        if (type == ValueType.CHAR) type = ValueType.INT;
+        code.op(type == ValueType.DOUBLE ? DNEG : type == ValueType.FLOAT ? FNEG : INEG, 0);
+        return type;
+    }
+
+    @Override
+    public ValueType visitBinary(AST.Binary b) {
+        switch (b.op) {
+            case ADD:
+                if (typeOf(b.left) == ValueType.STRING || typeOf(b.right) == ValueType.STRING) return concat(b);
+                return arithmetic(b, IADD, FADD, DADD);
+            case SUBTRACT:
+                return arithmetic(b, ISUB, FSUB, DSUB);
+            case MULTIPLY:
+                return arithmetic(b, IMUL, FMUL, DMUL);
+            case DIVIDE:
+                return arithmetic(b, IDIV, FDIV, DDIV);
+            case EQUAL: case NOT_EQUAL: case LESS: case LESS_EQUAL: case GREATER: case GREATER_EQUAL: case AND: case OR:
+                // comparisons and logic operators: materialize the jump as 0 / 1
+                Label no = code.label();
+                Label end = code.label();
+                int depth = code.stack();
+                jumpIfFalse(b, no);
+                code.op(ICONST_1, 1);
+                code.jump(GOTO, end, 0);
+                code.bind(no);
+                code.setStack(depth);
+                code.op(ICONST_0, 1);
+                code.bind(end);
+                return ValueType.BOOLEAN;
+            default:
+                throw new RuntimeException("Unsupported operator: " + b.op.text);
+        }
+    }
+
+    private ValueType arithmetic(AST.Binary b, int intOp, int floatOp, int doubleOp) {
+        ValueType type = ValueType.promote(typeOf(b.left), typeOf(b.right), b.op);
+        convert(value(b.left), type);
+        convert(value(b.right), type);
+        int op = type == ValueType.DOUBLE ? doubleOp : type == ValueType.FLOAT ? floatOp : intOp;
+        code.op(op, -size(type));
+        return type;
+    }
+
+    private ValueType concat(AST.Binary b) {
+        String builder = "java/lang/StringBuilder";
+        code.member(NEW, cf.classRef(builder), 1);
+        code.op(DUP, 1);
+        code.member(INVOKESPECIAL, cf.methodRef(builder, "<init>", "()V"), -1);
+        for (AST.Expr part : new AST.Expr[] {b.left, b.right}) {
+            ValueType type = value(part);
+            code.member(INVOKEVIRTUAL, cf.methodRef(builder, "append", "(" + descriptor(type) + ")L" + builder + ";"), -size(type));
+        }
+        code.member(INVOKEVIRTUAL, cf.methodRef(builder, "toString", "()Ljava/lang/String;"), 0);
+        return ValueType.STRING;
+    }
+
+    // Emits a branch to target taken when cond is false; comparisons jump directly.
+    private void jumpIfFalse(AST.Expr cond, Label target) {
+        if (cond instanceof AST.Grouping g) {
+            jumpIfFalse(g.expression, target);
+            return;
+        }
+        if (cond instanceof AST.Binary b) {
+            switch (b.op) {
+                case AND:
+                    jumpIfFalse(b.left, target);
+                    jumpIfFalse(b.right, target);
+                    return;
+                case OR: {
+                    Label yes = code.label();
+                    Label no = code.label();
+                    jumpIfFalse(b.left, no);
+                    code.jump(GOTO, yes, 0);
+                    code.bind(no);
+                    jumpIfFalse(b.right, target);
+                    code.bind(yes);
+                    return;
+                }
+                case EQUAL: case NOT_EQUAL: case LESS: case LESS_EQUAL: case GREATER: case GREATER_EQUAL:
+                    compare(b, target);
+                    return;
+                default:
+                    break;
+            }
+        }
+        ValueType type = value(cond);
+        if (type != ValueType.BOOLEAN) throw new RuntimeException("Condition must be BOOLEAN, found " + type);
+        code.jump(IFEQ, target, -1);
+    }
+
+    private void compare(AST.Binary b, Label whenFalse) {
+        ValueType left = typeOf(b.left);
+        ValueType right = typeOf(b.right);
+        boolean equality = b.op == Operator.EQUAL || b.op == Operator.NOT_EQUAL;
+
+        if (left == ValueType.STRING || right == ValueType.STRING) {
+            if (!equality || left != right) throw new RuntimeException("Cannot compare " + left + " " + b.op.text + " " + right);
+            value(b.left);
+            value(b.right);
+            code.member(INVOKESTATIC, cf.methodRef("java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z"), -1);
+            code.jump(b.op == Operator.EQUAL ? IFEQ : IFNE, whenFalse, -1);
+            return;
+        }
+
+        ValueType type;
+        if (left == ValueType.BOOLEAN || right == ValueType.BOOLEAN) {
+            if (!equality || left != right) throw new RuntimeException("Cannot compare " + left + " " + b.op.text + " " + right);
+            type = ValueType.BOOLEAN;
+        } else {
+            type = ValueType.promote(left, right, b.op);
+        }
+        convert(value(b.left), type);
+        convert(value(b.right), type);
+
+        int inverse;
+        switch (b.op) {
+            case EQUAL: inverse = IFNE; break;
+            case NOT_EQUAL: inverse = IFEQ; break;
+            case LESS: inverse = IFGE; break;
+            case LESS_EQUAL: inverse = IFGT; break;
+            case GREATER: inverse = IFLE; break;
+            default: inverse = IFLT; break;
+        }
+        if (type == ValueType.INT || type == ValueType.BOOLEAN) {
+            code.jump(inverse - IFEQ + IF_ICMPEQ, whenFalse, -2);
+            return;
+        }
+        // NaN must make every ordered comparison false
+        boolean less = b.op == Operator.LESS || b.op == Operator.LESS_EQUAL;
+        if (type == ValueType.FLOAT) code.op(less ? FCMPG : FCMPL, -1);
+        else code.op(less ? DCMPG : DCMPL, -3);
+        code.jump(inverse, whenFalse, -1);
+    }
+
+    // =============== TYPES ===============
+    private ValueType typeOf(AST.Expr expr) {
+        return AST.visit(expr, types);
+    }
+
+    // Static type of an expression, found without emitting any code.
+    private final class Types implements AST.ExprVisitor<ValueType> {
+        @Override
+        public ValueType visitLiteral(AST.Literal l) {
+            if (l.value instanceof Integer) return ValueType.INT;
+            if (l.value instanceof Double) return ValueType.DOUBLE;
+            if (l.value instanceof Boolean) return ValueType.BOOLEAN;
+            return ValueType.STRING;
+        }
+
+        @Override
+        public ValueType visitVariable(AST.Variable v) {
+            Local local = lookup(v.name);
+            return local != null ? local.type : global(v.name);
+        }
+
+        @Override
+        public ValueType visitAssignment(AST.Assignment a) {
+            Local local = lookup(a.name);
+            return local != null ? local.type : global(a.name);
+        }
+
+        @Override
+        public ValueType visitGrouping(AST.Grouping g) {
+            return typeOf(g.expression);
+        }
+
+        @Override
+        public ValueType visitUnary(AST.Unary u) {
+            if (u.op == Operator.NOT) return ValueType.BOOLEAN;
+            ValueType type = typeOf(u.right);
+            return type == ValueType.CHAR ? ValueType.INT : type;
+        }
+
+        @Override
+        public ValueType visitBinary(AST.Binary b) {
+            switch (b.op) {
+                case ADD:
+                    ValueType left = typeOf(b.left);
+                    ValueType right = typeOf(b.right);
+                    if (left == ValueType.STRING || right == ValueType.STRING) return ValueType.STRING;
+                    return ValueType.promote(left, right, b.op);
+                case SUBTRACT: case MULTIPLY: case DIVIDE:
+                    return ValueType.promote(typeOf(b.left), typeOf(b.right), b.op);
+                default:
+                    return ValueType.BOOLEAN;
+            }
+        }
+    }
+
+    private void convert(ValueType from, ValueType to) {
+        if (from == to || (from == ValueType.CHAR && to == ValueType.INT)) return;
+        if ((from == ValueType.INT || from == ValueType.CHAR) && to == ValueType.FLOAT) code.op(I2F, 0);
+        else if ((from == ValueType.INT || from == ValueType.CHAR) && to == ValueType.DOUBLE) code.op(I2D, 1);
+        else if (from == ValueType.FLOAT && to == ValueType.DOUBLE) code.op(F2D, 1);
+        else if (from == ValueType.DOUBLE && to == ValueType.FLOAT) code.op(D2F, -1);
+        else if (from == ValueType.INT && to == ValueType.CHAR) code.op(I2C, 0);
+        else throw new RuntimeException("Cannot convert " + from + " to " + to);
+    }
+
+    private void pushDefault(ValueType type) {
+        switch (type) {
+            case DOUBLE: code.pushDouble(0); break;
+            case FLOAT: code.pushFloat(0); break;
+            case STRING: code.op(ACONST_NULL, 1); break;
+            default: code.pushInt(0); break;
+        }
+    }
+
+    // =============== NAMES ===============
+    private Local lookup(String name) {
+        for (Map<String, Local> scope : scopes) {
+            Local local = scope.get(name);
+            if (local != null) return local;
+        }
+        return null;
+    }
+
+    private ValueType global(String name) {
+        ValueType type = globals.get(name);
+        if (type == null) throw new RuntimeException("Variable '" + name + "' not declared.");
+        return type;
+    }
+}
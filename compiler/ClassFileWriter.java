@@ -0,0 +1,365 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal class file writer: constant pool, static fields and static methods.
+// Classes are written as version 49 (Java 5), which the JVM still verifies by
+// type inference, so no StackMapTable frames have to be computed.
+final class ClassFileWriter {
+    private static final int VERSION = 49;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    // =============== OPCODES ===============
+    static final int ACONST_NULL = 1, ICONST_0 = 3, ICONST_1 = 4, FCONST_0 = 11, DCONST_0 = 14;
+    static final int BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19, LDC2_W = 20;
+    static final int ILOAD = 21, FLOAD = 23, DLOAD = 24, ALOAD = 25;
+    static final int ISTORE = 54, FSTORE = 56, DSTORE = 57, ASTORE = 58;
+    static final int POP = 87, POP2 = 88, DUP = 89, DUP2 = 92;
+    static final int IADD = 96, FADD = 98, DADD = 99, ISUB = 100, FSUB = 102, DSUB = 103;
+    static final int IMUL = 104, FMUL = 106, DMUL = 107, IDIV = 108, FDIV = 110, DDIV = 111;
+    static final int INEG = 116, FNEG = 118, DNEG = 119, IXOR = 130;
+    static final int I2F = 134, I2D = 135, F2D = 141, D2F = 144, I2C = 146;
+    static final int FCMPL = 149, FCMPG = 150, DCMPL = 151, DCMPG = 152;
+    static final int IFEQ = 153, IFNE = 154, IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158;
+    static final int IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPGT = 163, IF_ICMPLE = 164;
+    static final int GOTO = 167, RETURN = 177;
+    static final int GETSTATIC = 178, PUTSTATIC = 179;
+    static final int INVOKEVIRTUAL = 182, INVOKESPECIAL = 183, INVOKESTATIC = 184;
+    static final int NEW = 187, WIDE = 196;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<byte[]> methods = new ArrayList<>();
+
+    ClassFileWriter(String internalName) {
+        this.thisClass = classRef(internalName);
+        this.superClass = classRef("java/lang/Object");
+    }
+
+    // =============== CONSTANT POOL ===============
+    private int entry(String key, int slots, PoolWrite write) {
+        Integer index = entries.get(key);
+        if (index != null) return index;
+        try {
+            write.to(pool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int created = poolCount;
+        poolCount += slots;
+        if (poolCount > 0xFFFF) throw new RuntimeException("Constant pool overflow.");
+        entries.put(key, created);
+        return created;
+    }
+
+    private interface PoolWrite {
+        void to(DataOutputStream out) throws IOException;
+    }
+
+    int utf8(String s) {
+        return entry("U" + s, 1, out -> {
+            out.writeByte(1);
+            out.writeUTF(s);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return entry("C" + internalName, 1, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    int string(String s) {
+        int value = utf8(s);
+        return entry("S" + s, 1, out -> {
+            out.writeByte(8);
+            out.writeShort(value);
+        });
+    }
+
+    int integer(int v) {
+        return entry("I" + v, 1, out -> {
+            out.writeByte(3);
+            out.writeInt(v);
+        });
+    }
+
+    int floatConst(float v) {
+        return entry("F" + Float.floatToRawIntBits(v), 1, out -> {
+            out.writeByte(4);
+            out.writeFloat(v);
+        });
+    }
+
+    int doubleConst(double v) {
+        return entry("D" + Double.doubleToRawLongBits(v), 2, out -> {
+            out.writeByte(6);
+            out.writeDouble(v);
+        });
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int n = utf8(name);
+        int d = utf8(descriptor);
+        return entry("N" + name + ":" + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(n);
+            out.writeShort(d);
+        });
+    }
+
+    private int member(int tag, String owner, String name, String descriptor) {
+        int c = classRef(owner);
+        int nt = nameAndType(name, descriptor);
+        return entry(tag + owner + "." + name + ":" + descriptor, 1, out -> {
+            out.writeByte(tag);
+            out.writeShort(c);
+            out.writeShort(nt);
+        });
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return member(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return member(10, owner, name, descriptor);
+    }
+
+    // =============== MEMBERS ===============
+    void field(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    Code method(int access, String name, String descriptor, int argSlots) {
+        return new Code(access, name, descriptor, argSlots);
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(fields.size());
+            for (byte[] f : fields) out.write(f);
+            out.writeShort(methods.size());
+            for (byte[] m : methods) out.write(m);
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // =============== CODE ===============
+    static final class Label {
+        private int position = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+    }
+
+    // Bytecode of one method. Callers pass the stack effect of each
+    // instruction so max_stack falls out of the emission itself.
+    final class Code {
+        private final int access;
+        private final String name;
+        private final String descriptor;
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final List<Label> labels = new ArrayList<>();
+        private int stack;
+        private int maxStack;
+        private int maxLocals;
+
+        private Code(int access, String name, String descriptor, int argSlots) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.maxLocals = argSlots;
+        }
+
+        int size() {
+            return code.size();
+        }
+
+        int stack() {
+            return stack;
+        }
+
+        // stack depth at a join point reached only by jumps
+        void setStack(int depth) {
+            stack = depth;
+        }
+
+        void useLocals(int slots) {
+            maxLocals = Math.max(maxLocals, slots);
+        }
+
+        private void effect(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void u1(int b) {
+            code.write(b);
+        }
+
+        private void u2(int v) {
+            code.write(v >>> 8);
+            code.write(v);
+        }
+
+        void op(int opcode, int delta) {
+            u1(opcode);
+            effect(delta);
+        }
+
+        void pushInt(int v) {
+            if (v >= -1 && v <= 5) {
+                op(ICONST_0 + v, 1);
+            } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+                u1(BIPUSH);
+                u1(v);
+                effect(1);
+            } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+                u1(SIPUSH);
+                u2(v);
+                effect(1);
+            } else {
+                ldc(integer(v));
+            }
+        }
+
+        void pushFloat(float v) {
+            if (v == 0f && Float.floatToRawIntBits(v) == 0) op(FCONST_0, 1);
+            else ldc(floatConst(v));
+        }
+
+        void pushDouble(double v) {
+            if (v == 0d && Double.doubleToRawLongBits(v) == 0) {
+                op(DCONST_0, 2);
+            } else {
+                u1(LDC2_W);
+                u2(doubleConst(v));
+                effect(2);
+            }
+        }
+
+        void ldc(int index) {
+            if (index <= 0xFF) {
+                u1(LDC);
+                u1(index);
+            } else {
+                u1(LDC_W);
+                u2(index);
+            }
+            effect(1);
+        }
+
+        void local(int opcode, int slot, int delta) {
+            if (slot > 0xFF) {
+                u1(WIDE);
+                u1(opcode);
+                u2(slot);
+            } else {
+                u1(opcode);
+                u1(slot);
+            }
+            effect(delta);
+        }
+
+        void member(int opcode, int index, int delta) {
+            u1(opcode);
+            u2(index);
+            effect(delta);
+        }
+
+        Label label() {
+            Label label = new Label();
+            labels.add(label);
+            return label;
+        }
+
+        void jump(int opcode, Label target, int delta) {
+            int at = code.size();
+            u1(opcode);
+            target.jumps.add(at);
+            u2(0);
+            effect(delta);
+        }
+
+        void bind(Label label) {
+            label.position = code.size();
+        }
+
+        void end() {
+            byte[] body = code.toByteArray();
+            if (body.length > 0xFFFF) throw new RuntimeException("Method " + name + " exceeds the JVM code size limit.");
+            for (Label label : labels) {
+                for (int at : label.jumps) {
+                    int offset = label.position - at;
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new RuntimeException("Jump too far in method " + name + "; statement is too large.");
+                    }
+                    body[at + 1] = (byte) (offset >>> 8);
+                    body[at + 2] = (byte) offset;
+                }
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeShort(access);
+                out.writeShort(utf8(name));
+                out.writeShort(utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(utf8("Code"));
+                out.writeInt(12 + body.length);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(body.length);
+                out.write(body);
+                out.writeShort(0); // exception table
+                out.writeShort(0); // attributes
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            methods.add(bytes.toByteArray());
+        }
+    }
+}
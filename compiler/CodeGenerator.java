@@ -1,91 +1,474 @@
 package compiler;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class CodeGenerator {
+public class CodeGenerator implements AST.StmtVisitor<Void>, AST.ExprVisitor<Object> {
 
-    private final StringBuilder output = new StringBuilder();
-    private final Map<String, Object> variables = new HashMap<>();
+    private Appendable output;
+    private Object[] variables = new Object[64];  // value by Symbols id, null until assigned
+    private String[] assigns = new String[64];  // "name = " by Symbols id, built on first use
 
     public String generate(AST.Program program) {
-        for (AST.Stmt stmt : program.statements) {
-            generateStmt(stmt);
+        StringBuilder sb = new StringBuilder();
+        try {
+            generate(program, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // a StringBuilder never throws
         }
-        return output.toString();
+        return sb.toString();
     }
 
-    private void generateStmt(AST.Stmt stmt) {
-        if (stmt instanceof AST.VarDecl v) {
-            Object value = evaluateExpr(v.initializer);
-            variables.put(v.name, value);
-            output.append(v.type)
-                  .append(" ")
-                  .append(v.name)
-                  .append(" = ")
-                  .append(value)
-                  .append(";\n");
-
-        } else if (stmt instanceof AST.Print p) {
-            Object value = evaluateExpr(p.expression);
-            output.append("print(").append(value).append(");\n");
-
-        } else if (stmt instanceof AST.ExpressionStmt e) {
-            Object value = evaluateExpr(e.expression);
-            output.append(value).append(";\n");
-
-        } else if (stmt instanceof AST.Block b) {
-            output.append("{\n");
-            for (AST.Stmt s : b.statements) {
-                generateStmt(s);
+    // Streams the code into any sink (StringBuilder, Writer, PrintStream, ...);
+    // nothing but the sink ever holds the whole output.
+    public void generate(AST.Program program, Appendable sink) throws IOException {
+        output = sink;
+        try {
+            for (AST.Stmt stmt : program.statements) {
+                generateStmt(stmt);
             }
-            output.append("}\n");
-
-        } else if (stmt instanceof AST.IfStmt i) {
-            Object cond = evaluateExpr(i.condition);
-            output.append("if (").append(cond).append(") ");
-            generateStmt(i.thenBranch);
-            if (i.elseBranch != null) {
-                output.append("else ");
-                generateStmt(i.elseBranch);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();  // the visitors cannot throw the sink's IOException themselves
+        }
+    }
+
+    // Streams the code as UTF-8 into a channel through a pooled direct buffer.
+    public void generate(AST.Program program, WritableByteChannel channel) throws IOException {
+        ChannelSink sink = new ChannelSink(channel);
+        try {
+            generate(program, sink);
+            sink.flush();
+        } finally {
+            sink.release();
+        }
+    }
+
+    // Generates one statement against the current variable values and returns
+    // just its text; used to rebuild single regions in incremental mode.
+    String generateFragment(AST.Stmt stmt) {
+        StringBuilder sb = new StringBuilder();
+        output = sb;
+        generateStmt(stmt);
+        return sb.toString();
+    }
+
+    // Runs statements for their effect on the variable values only: nothing
+    // is spelled out, so this costs a walk of the tree, not the size of the
+    // output. ParallelCompiler uses it to find the values each slice starts from.
+    void skip(AST.Stmt stmt) {
+        output = DISCARD;
+        generateStmt(stmt);
+    }
+
+    // Generates statements [from, to) starting from the given variable values.
+    void generate(List<AST.Stmt> statements, int from, int to, Object[] start, Appendable sink) throws IOException {
+        variables = start.clone();
+        output = sink;
+        try {
+            for (int i = from; i < to; i++) {
+                generateStmt(statements.get(i));
             }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Values known for each variable so far, by Symbols id (read and restored
+    // by IncrementalCompiler, copied for each slice by ParallelCompiler).
+    Object value(int symbol) {
+        return symbol < variables.length ? variables[symbol] : null;
+    }
+
+    void assign(int symbol, Object value) {
+        if (symbol >= variables.length) variables = Arrays.copyOf(variables, Math.max(symbol + 1, variables.length * 2));
+        variables[symbol] = value;
+    }
+
+    void unassign(int symbol) {
+        if (symbol < variables.length) variables[symbol] = null;
+    }
+
+    Object[] variables() {
+        return variables.clone();
+    }
 
-        } else if (stmt instanceof AST.WhileStmt w) {
-            output.append("while (")
-                  .append(evaluateExpr(w.condition))
-                  .append(") ");
-            generateStmt(w.body);
+    // =============== STATEMENTS ===============
+    private void generateStmt(AST.Stmt stmt) {
+        AST.visit(stmt, this);
+    }
+
+    @Override
+    public Void visitVarDecl(AST.VarDecl v) {
+        Object value = evaluateExpr(v.initializer);
+        assign(v.symbol, value);
+        append(v.type);
+        append(" ");
+        append(v.name);
+        append(" = ");
+        emit(value);
+        append(";\n");
+        return null;
+    }
 
-        } else if (stmt instanceof AST.ForStmt f) {
-            output.append("for (");
-            if (f.initializer != null) generateStmt(f.initializer);
-            output.append("; ");
-            if (f.condition != null) output.append(evaluateExpr(f.condition));
-            output.append("; ");
-            if (f.increment != null) output.append(evaluateExpr(f.increment));
-            output.append(") ");
-            generateStmt(f.body);
+    @Override
+    public Void visitPrint(AST.Print p) {
+        Object value = evaluateExpr(p.expression);
+        append("print(");
+        emit(value);
+        append(");\n");
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(AST.ExpressionStmt e) {
+        Object value = evaluateExpr(e.expression);
+        emit(value);
+        append(";\n");
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(AST.Block b) {
+        append("{\n");
+        for (AST.Stmt s : b.statements) {
+            generateStmt(s);
+        }
+        append("}\n");
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(AST.IfStmt i) {
+        Object cond = evaluateExpr(i.condition);
+        append("if (");
+        emit(cond);
+        append(") ");
+        generateStmt(i.thenBranch);
+        if (i.elseBranch != null) {
+            append("else ");
+            generateStmt(i.elseBranch);
         }
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(AST.WhileStmt w) {
+        append("while (");
+        emit(evaluateExpr(w.condition));
+        append(") ");
+        generateStmt(w.body);
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(AST.ForStmt f) {
+        append("for (");
+        if (f.initializer != null) generateStmt(f.initializer);
+        append("; ");
+        if (f.condition != null) emit(evaluateExpr(f.condition));
+        append("; ");
+        if (f.increment != null) emit(evaluateExpr(f.increment));
+        append(") ");
+        generateStmt(f.body);
+        return null;
     }
 
+    // =============== EXPRESSIONS ===============
+    // Literals and variable values are returned as they are; any other
+    // expression becomes a Text that holds the values of its operands and is
+    // only spelled out when emitted. Assignments take effect here, in
+    // evaluation order, so a Text never looks at variables again.
     private Object evaluateExpr(AST.Expr expr) {
         if (expr == null) return "null";
+        return AST.visit(expr, this);
+    }
+
+    @Override
+    public Object visitLiteral(AST.Literal l) {
+        return l.value;
+    }
+
+    @Override
+    public Object visitVariable(AST.Variable v) {
+        Object value = value(v.symbol);
+        return value != null ? value : "undefined";
+    }
+
+    @Override
+    public Object visitBinary(AST.Binary b) {
+        Object left = evaluateExpr(b.left);
+        Object right = evaluateExpr(b.right);
+        Operator op = b.op != null ? b.op : Operator.of(b.operator);
+        String infix = op != null ? INFIX[op.ordinal()] : " " + b.operator + " ";
+        return new Text("(", left, infix, right, ")");
+    }
+
+    @Override
+    public Object visitAssignment(AST.Assignment a) {
+        Object val = evaluateExpr(a.value);
+        assign(a.symbol, val);
+        return new Text(assignPrefix(a), val, null, null, "");
+    }
+
+    @Override
+    public Object visitUnary(AST.Unary u) {
+        Operator op = u.op != null ? u.op : Operator.of(u.operator);
+        String prefix = op != null ? PREFIX[op.ordinal()] : "(" + u.operator;
+        return new Text(prefix, evaluateExpr(u.right), null, null, ")");
+    }
+
+    @Override
+    public Object visitGrouping(AST.Grouping g) {
+        return new Text("(", evaluateExpr(g.expression), null, null, ")");
+    }
+
+    // =============== OUTPUT ===============
+    private void append(String text) {
+        try {
+            output.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void emit(Object value) {
+        if (output == DISCARD) return;
+        try {
+            Text.part(output, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        if (expr instanceof AST.Literal l) {
-            return l.value;
-        } else if (expr instanceof AST.Variable v) {
-            return variables.getOrDefault(v.name, "undefined");
-        } else if (expr instanceof AST.Binary b) {
-            Object left = evaluateExpr(b.left);
-            Object right = evaluateExpr(b.right);
-            return "(" + left + " " + b.operator + " " + right + ")";
-        } else if (expr instanceof AST.Assignment a) {
-            Object val = evaluateExpr(a.value);
-            variables.put(a.name, val);
-            return a.name + " = " + val;
-        } else if (expr instanceof AST.Grouping g) {
-            return "(" + evaluateExpr(g.expression) + ")";
-        }
-
-        return "unknown_expr";
+    private static final Appendable DISCARD = new Appendable() {
+        @Override
+        public Appendable append(CharSequence csq) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) {
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            return this;
+        }
+    };
+
+    // =============== DEFERRED TEXT ===============
+    // Generated text of one operator node: prefix, first operand, infix,
+    // second operand, suffix. Variables hold Texts, so a value reused many
+    // times is shared instead of copied into every use. The fixed pieces are
+    // shared (see below), and equal Texts always spell out the same code,
+    // which IncrementalCompiler relies on. Literal operands are kept as they
+    // are and written straight to the sink on emit, without a String.
+    private static final class Text {
+        final String prefix, infix, suffix;
+        final Object first, second;
+        final int hash;
+
+        Text(String prefix, Object first, String infix, Object second, String suffix) {
+            this.prefix = prefix;
+            this.first = first;
+            this.infix = infix;
+            this.second = second;
+            this.suffix = suffix;
+            int h = prefix.hashCode();
+            h = 31 * h + Objects.hashCode(this.first);
+            h = 31 * h + Objects.hashCode(infix);
+            h = 31 * h + Objects.hashCode(this.second);
+            this.hash = 31 * h + suffix.hashCode();
+        }
+
+        void emit(Appendable out) throws IOException {
+            out.append(prefix);
+            part(out, first);
+            if (infix != null) {
+                out.append(infix);
+                part(out, second);
+            }
+            out.append(suffix);
+        }
+
+        // Same spelling as String.valueOf; only a double with a fraction or
+        // an exponent still goes through Double.toString.
+        static void part(Appendable out, Object value) throws IOException {
+            if (value instanceof Text t) t.emit(out);
+            else if (value instanceof String s) out.append(s);
+            else if (value instanceof Integer i) digits(out, i);
+            else if (value instanceof Long l) digits(out, l);
+            else if (value instanceof Character c) out.append(c);
+            else if (value instanceof Boolean b) out.append(b ? "true" : "false");
+            else if (value instanceof Double d && whole(d)) {
+                digits(out, (long) d.doubleValue());
+                out.append(".0");
+            }
+            else out.append(String.valueOf(value));
+        }
+
+        // doubles Double.toString writes as plain digits plus ".0"
+        private static boolean whole(double d) {
+            return d == Math.rint(d) && Math.abs(d) < 1e7 && (d != 0 || 1 / d > 0);
+        }
+
+        private static void digits(Appendable out, long v) throws IOException {
+            if (v < 0) {
+                if (v == Long.MIN_VALUE) {
+                    out.append("-9223372036854775808");
+                    return;
+                }
+                out.append('-');
+                v = -v;
+            }
+            long p = 1;
+            while (p <= v / 10) p *= 10;
+            for (; p > 0; p /= 10) out.append((char) ('0' + v / p % 10));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Text t) || hash != t.hash) return false;
+            return prefix.equals(t.prefix) && Objects.equals(infix, t.infix) && suffix.equals(t.suffix)
+                    && Objects.equals(first, t.first) && Objects.equals(second, t.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // Fixed pieces, by Operator ordinal (" + ", "(-", ...) and by Symbols id
+    // ("x = "), so building a node's Text allocates nothing but the Text.
+    private static final String[] INFIX = new String[Operator.values().length];
+    private static final String[] PREFIX = new String[Operator.values().length];
+
+    static {
+        for (Operator op : Operator.values()) {
+            INFIX[op.ordinal()] = " " + op.text + " ";
+            PREFIX[op.ordinal()] = "(" + op.text;
+        }
+    }
+
+    private String assignPrefix(AST.Assignment a) {
+        if (a.symbol >= assigns.length) assigns = Arrays.copyOf(assigns, Math.max(a.symbol + 1, assigns.length * 2));
+        String prefix = assigns[a.symbol];
+        if (prefix == null) assigns[a.symbol] = prefix = a.name + " = ";
+        return prefix;
+    }
+
+    // =============== CHANNEL SINK ===============
+    // Encodes UTF-8 by hand into a heap array (generated code is almost all
+    // ASCII, one byte per char), then copies it in bulk into a direct buffer
+    // borrowed from a small shared pool, which is written to the channel
+    // whenever it fills up.
+    private static final int BUFFER_SIZE = 64 << 10;
+    private static final int POOL_SIZE = 8;
+    private static final Queue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+    private static final class ChannelSink implements Appendable {
+        private final WritableByteChannel channel;
+        private final byte[] staged = new byte[BUFFER_SIZE];
+        private int size;
+        private char high;  // high surrogate waiting for its pair
+        private ByteBuffer bytes;
+
+        ChannelSink(WritableByteChannel channel) {
+            this.channel = channel;
+            ByteBuffer pooled = POOL.poll();
+            this.bytes = pooled != null ? pooled : ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                char c = csq.charAt(i);
+                if (c < 0x80 && high == 0) {
+                    if (size == staged.length) transfer();
+                    staged[size++] = (byte) c;
+                } else {
+                    put(c);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            put(c);
+            return this;
+        }
+
+        private void put(char c) throws IOException {
+            if (size > staged.length - 4) transfer();
+            if (high != 0) {
+                char first = high;
+                high = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int cp = Character.toCodePoint(first, c);
+                    staged[size++] = (byte) (0xF0 | cp >> 18);
+                    staged[size++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    staged[size++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    staged[size++] = (byte) (0x80 | cp & 0x3F);
+                    return;
+                }
+                staged[size++] = '?';  // unpaired, as String.getBytes would write it
+                put(c);
+                return;
+            }
+            if (c < 0x80) {
+                staged[size++] = (byte) c;
+            } else if (c < 0x800) {
+                staged[size++] = (byte) (0xC0 | c >> 6);
+                staged[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c)) {
+                high = c;
+            } else if (Character.isLowSurrogate(c)) {
+                staged[size++] = '?';
+            } else {
+                staged[size++] = (byte) (0xE0 | c >> 12);
+                staged[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+                staged[size++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        void flush() throws IOException {
+            if (high != 0) {
+                high = 0;
+                staged[size++] = '?';
+            }
+            transfer();
+            drain();
+        }
+
+        private void transfer() throws IOException {
+            if (bytes.remaining() < size) drain();
+            bytes.put(staged, 0, size);
+            size = 0;
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            bytes.clear();
+        }
+
+        void release() {
+            bytes.clear();
+            if (POOL.size() < POOL_SIZE) POOL.offer(bytes);
+            bytes = null;
+        }
     }
 }
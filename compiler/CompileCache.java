@@ -0,0 +1,291 @@
+package compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Content-addressed compilation cache on disk. An entry holds everything a
+// compile produces from one source (generated code, optimized AST, semantic
+// errors) under the SHA-256 of the source bytes, so any process that sees the
+// same bytes can skip lexing, parsing and analysis. Entries are written to a
+// temp file and renamed into place, so readers never see a partial entry;
+// reads refresh the entry's modification time, which drives LRU eviction once
+// the directory grows past its size limit.
+public class CompileCache {
+    public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    // bumped whenever the entry layout or the compiler's output changes
+    private static final String FORMAT = "proglang-cache-5";
+    private static final int MAGIC = 0x504C4332;  // "PLC2"
+    private static final String SUFFIX = ".entry";
+    private static final long STALE_TEMP_MILLIS = 60 * 60 * 1000;
+
+    // What one compile produced. The AST is only decoded when a backend asks
+    // for it; printing the generated code never pays for it.
+    public static final class Entry {
+        public final String code;
+        public final List<String> semanticErrors;
+        private AST.Program program;
+        private ByteBuffer encoded;
+        // set on a hit, so a damaged AST can be replaced by compiling the source again
+        private CompileCache cache;
+        private String key;
+        private byte[] source;
+
+        public Entry(String code, AST.Program program, List<String> semanticErrors) {
+            this.code = code;
+            this.program = program;
+            this.semanticErrors = List.copyOf(semanticErrors);
+        }
+
+        private Entry(String code, ByteBuffer encoded, List<String> semanticErrors) {
+            this.code = code;
+            this.encoded = encoded;
+            this.semanticErrors = semanticErrors;
+        }
+
+        public AST.Program program() {
+            if (program == null) {
+                try {
+                    program = AstFormat.read(encoded);
+                } catch (IllegalArgumentException e) {
+                    if (cache == null) throw e;
+                    // the code was readable but the AST tail is damaged: replace the entry
+                    delete(cache.dir.resolve(key + SUFFIX));
+                    Entry fresh = compileSource(source, new CompileStats(key));
+                    cache.put(key, fresh);
+                    program = fresh.program;
+                }
+                encoded = null;
+                cache = null;
+                source = null;
+            }
+            return program;
+        }
+    }
+
+    public final AtomicInteger hits = new AtomicInteger();
+    public final AtomicInteger misses = new AtomicInteger();
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong size = new AtomicLong();
+
+    public CompileCache(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        size.set(scan().stream().mapToLong(f -> f.size).sum());
+    }
+
+    public static String key(byte[] source) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(FORMAT.getBytes(StandardCharsets.UTF_8));
+            byte[] digest = sha.digest(source);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK ships SHA-256
+        }
+    }
+
+    // =============== COMPILATION ===============
+    // The file is read once; its bytes are both the key and, on a miss, the lexer input.
+    public Entry compile(Path path) throws IOException {
+        return compile(path, new CompileStats(path.toString()));
+    }
+
+    // On a miss the phases are measured into stats; a hit records only the read.
+    public Entry compile(Path path, CompileStats stats) throws IOException {
+        stats.begin(CompileStats.Phase.READ);
+        byte[] source = Files.readAllBytes(path);
+        stats.end(source.length);
+        String key = key(source);
+        Entry entry = get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            entry.cache = this;
+            entry.key = key;
+            entry.source = source;
+            return entry;
+        }
+        misses.incrementAndGet();
+
+        entry = compileSource(source, stats);
+        put(key, entry);
+        return entry;
+    }
+
+    private static Entry compileSource(byte[] source, CompileStats stats) {
+        char[] chars = new String(source, StandardCharsets.UTF_8).toCharArray();
+        return new Lexical_Analyzer("").compile(chars, stats, true);
+    }
+
+    // =============== LOOKUP ===============
+    // Entry file: MAGIC, code, semantic errors (each a length and UTF-8 bytes),
+    // then the AST in AstFormat. Returns null on a miss; unreadable entries are
+    // dropped and count as misses. Lengths are checked against the bytes left
+    // before anything is allocated, so a damaged length is a miss too.
+    public Entry get(String key) {
+        Path file = dir.resolve(key + SUFFIX);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a cache entry");
+            String code = utf8(in);
+            int n = length(in);  // every error takes at least its 4-byte length
+            List<String> errors = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) errors.add(utf8(in));
+            // the AST is decoded in place from the tail of the bytes already read
+            int at = bytes.length - in.available();
+            return new Entry(code, ByteBuffer.wrap(bytes, at, bytes.length - at), errors);
+        } catch (IOException e) {
+            // written by an incompatible compiler or damaged: forget it
+            delete(file);
+            return null;
+        }
+    }
+
+    // a length no larger than what is left of the entry
+    private static int length(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > in.available()) throw new IOException("bad length " + n);
+        return n;
+    }
+
+    private static String utf8(DataInputStream in) throws IOException {
+        byte[] text = new byte[length(in)];
+        in.readFully(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    // =============== STORE ===============
+    public void put(String key, Entry entry) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(MAGIC);
+            utf8(out, entry.code);
+            out.writeInt(entry.semanticErrors.size());
+            for (String error : entry.semanticErrors) utf8(out, error);
+            out.write(AstFormat.write(entry.program()));
+            bytes = buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Path file = dir.resolve(key + SUFFIX);
+        try {
+            Path temp = Files.createTempFile(dir, key, ".tmp");
+            try {
+                Files.write(temp, bytes);
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            return; // a cache that cannot be written only costs a recompile
+        }
+        if (size.addAndGet(bytes.length) > maxBytes) evict();
+    }
+
+    // not writeUTF: that is limited to 64 KB of encoded text
+    private static void utf8(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // =============== EVICTION ===============
+    private static final class CachedFile {
+        final Path path;
+        final long size;
+        final long lastUsed;
+
+        CachedFile(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    // Deletes least recently used entries until the cache is back to 3/4 of its limit.
+    private synchronized void evict() {
+        List<CachedFile> files = scan();
+        long total = files.stream().mapToLong(f -> f.size).sum();
+        files.sort(Comparator.comparingLong(f -> f.lastUsed));
+        long target = maxBytes / 4 * 3;
+        for (CachedFile f : files) {
+            if (total <= target) break;
+            if (delete(f.path)) total -= f.size;
+        }
+        size.set(total);
+    }
+
+    // Lists entries, removing temp files left behind by crashed writers.
+    private List<CachedFile> scan() {
+        List<CachedFile> files = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(p, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue; // removed by another process meanwhile
+                }
+                long modified = attrs.lastModifiedTime().toMillis();
+                if (name.endsWith(SUFFIX)) {
+                    files.add(new CachedFile(p, attrs.size(), modified));
+                } else if (name.endsWith(".tmp") && now - modified > STALE_TEMP_MILLIS) {
+                    delete(p);
+                }
+            }
+        } catch (IOException e) {
+            // unreadable directory: nothing to evict
+        }
+        return files;
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package compiler;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+// Thin client for the compile daemon (Compiler --serve). It only forwards its
+// arguments and working directory over the daemon's Unix-domain socket and
+// copies the frames that come back to stdout and stderr, so it loads none of
+// the compiler and its JVM exits right after the daemon's answer.
+//
+//   java -cp <classes> compiler.CompileClient [--socket PATH] [--stats | --stats=json] <file>...
+//   java -cp <classes> compiler.CompileClient [--socket PATH] --stop
+//
+// Wire format, both directions: frames of one tag byte, a 4-byte big-endian
+// length and that many bytes.
+//   REQUEST  working directory and arguments, UTF-8, separated by '\0';
+//            at most MAX_REQUEST bytes, larger ones are refused by the daemon
+//   OUT/ERR  a piece of the compiler's stdout / stderr
+//   EXIT     4 bytes: the exit status; always the last frame
+public final class CompileClient {
+    static final byte REQUEST = 'R';
+    static final byte OUT = 'O';
+    static final byte ERR = 'E';
+    static final byte EXIT = 'X';
+    static final String STOP = "--stop";
+    static final int MAX_REQUEST = 1 << 20;  // bytes of one REQUEST payload
+
+    private CompileClient() {}
+
+    // One daemon per user by default.
+    static Path defaultSocket() {
+        return Path.of(System.getProperty("java.io.tmpdir"), "proglang-" + System.getProperty("user.name") + ".sock");
+    }
+
+    public static void main(String[] args) {
+        Path socket = defaultSocket();
+        StringBuilder request = new StringBuilder(Path.of("").toAbsolutePath().toString());
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--socket") && i + 1 < args.length) {
+                socket = Path.of(args[++i]);
+                continue;
+            }
+            request.append('\0').append(args[i]);
+        }
+        try {
+            System.exit(send(socket, request.toString()));
+        } catch (IOException e) {
+            System.err.println(socket + ": " + e + " (is Compiler --serve running?)");
+            System.exit(2);
+        }
+    }
+
+    private static int send(Path socket, String request) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            byte[] payload = request.getBytes(StandardCharsets.UTF_8);
+            if (payload.length > MAX_REQUEST) throw new IOException("request of " + payload.length + " bytes is over the " + MAX_REQUEST + " byte limit");
+            ByteBuffer frame = ByteBuffer.allocate(5 + payload.length);
+            frame.put(REQUEST).putInt(payload.length).put(payload).flip();
+            while (frame.hasRemaining()) channel.write(frame);
+
+            // stream the answer as it arrives; the code is never held whole
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            byte[] chunk = new byte[1 << 16];
+            while (true) {
+                byte tag = in.readByte();
+                int length = in.readInt();
+                if (tag == EXIT) return in.readInt();
+                PrintStream out = tag == ERR ? System.err : System.out;
+                while (length > 0) {
+                    int n = in.read(chunk, 0, Math.min(chunk.length, length));
+                    if (n < 0) throw new EOFException("daemon closed the connection");
+                    out.write(chunk, 0, n);
+                    length -= n;
+                }
+                out.flush();
+            }
+        }
+    }
+}
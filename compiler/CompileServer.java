@@ -0,0 +1,268 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Compile daemon: one long-running JVM that keeps the compiler loaded and
+// JIT-compiled, answering requests from CompileClient over a Unix-domain
+// socket. A short script then costs a connect and the compile itself instead
+// of a JVM start plus a lexer and parser running cold in the interpreter.
+//
+// Every request gets its own thread and fresh compiler instances, as in
+// BatchCompiler; they share only the read-only tables, the Symbols interner
+// (leased per request, so it is reset once it grows past Symbols.LIMIT) and
+// the optional CompileCache. Output is streamed back in frames as it is
+// generated (see CompileClient for the wire format).
+public class CompileServer {
+    private static final int FRAME = 1 << 15;  // chars of output per frame
+
+    private final Path socket;
+    private final CompileCache cache;  // null when caching is off
+    private final ExecutorService handlers = handlers();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Trace.Level trace = Trace.level();  // the daemon's own level, restored for every request
+    private ServerSocketChannel server;
+
+    public CompileServer(Path socket, CompileCache cache) {
+        this.socket = socket;
+        this.cache = cache;
+    }
+
+    // A virtual thread per request where the runtime has them (Java 21+),
+    // so a client slow to read its output never holds a platform thread.
+    // The build targets Java 17, so they are looked up reflectively; older
+    // runtimes get a pool of platform threads that grows with the load.
+    private static ExecutorService handlers() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "proglang-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // =============== ACCEPT LOOP ===============
+    // Serves until a client sends --stop.
+    public void run() throws IOException {
+        // 1️⃣ Claim the socket path: refuse if a daemon already answers there, else clear a stale file
+        if (Files.exists(socket)) {
+            if (answers(socket)) throw new IOException("a compile daemon is already serving " + socket);
+            Files.delete(socket);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        Runtime.getRuntime().addShutdownHook(new Thread(this::removeSocket, "proglang-serve-cleanup"));
+        System.out.println("🔹 SERVING on " + socket);
+        System.out.flush();
+
+        // 2️⃣ Hand every connection to its own thread
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                handlers.execute(() -> handle(client));
+            }
+        } catch (ClosedChannelException e) {
+            // --stop closed the server socket
+        } finally {
+            handlers.shutdown();
+            removeSocket();
+        }
+        System.out.println("🔹 STOPPED after " + requests.get() + " requests");
+    }
+
+    private static boolean answers(Path socket) {
+        try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            probe.connect(UnixDomainSocketAddress.of(socket));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void removeSocket() {
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            // nothing left to do at shutdown
+        }
+    }
+
+    // =============== REQUESTS ===============
+    private void handle(SocketChannel client) {
+        try (client) {
+            String[] request = readRequest(client);
+            requests.incrementAndGet();
+            Trace.level(trace);  // the level is JVM-wide; nothing set while serving one request carries over
+            if (Trace.enabled(Trace.Level.INFO)) Trace.info("🔹 REQUEST " + String.join(" ", request));
+            FrameWriter out = new FrameWriter(client, CompileClient.OUT);
+            FrameWriter err = new FrameWriter(client, CompileClient.ERR);
+            int status;
+            Symbols.acquire();
+            try {
+                status = compile(request, out, err);
+            } finally {
+                Symbols.release();
+            }
+            out.flush();
+            err.flush();
+            writeFrame(client, CompileClient.EXIT, ByteBuffer.allocate(4).putInt(status).array());
+            if (request.length == 2 && request[1].equals(CompileClient.STOP)) server.close();
+        } catch (IOException | RuntimeException e) {
+            Trace.warn("compile daemon: request failed: " + e);
+        }
+    }
+
+    // request[0] is the client's working directory, the rest its arguments.
+    // The length is checked before anything is allocated for the payload.
+    private static String[] readRequest(SocketChannel client) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(5);
+        readFully(client, header);
+        if (header.get(0) != CompileClient.REQUEST) throw new IOException("not a compile request");
+        int length = header.getInt(1);
+        if (length < 0 || length > CompileClient.MAX_REQUEST) throw new IOException("request of " + length + " bytes refused");
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(client, payload);
+        return new String(payload.array(), StandardCharsets.UTF_8).split("\0", -1);
+    }
+
+    private static void readFully(SocketChannel client, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) throw new IOException("client closed the connection");
+        }
+    }
+
+    // The default compile mode of Compiler (generated code on stdout) plus
+    // --stats; modes that run the program are left to a normal Compiler run,
+    // since the program's own output goes to the daemon's System.out.
+    private int compile(String[] request, FrameWriter out, FrameWriter err) throws IOException {
+        Path cwd = Path.of(request[0]);
+        Lexical_Analyzer lexer = new Lexical_Analyzer("");
+        String stats = null;
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i < request.length; i++) {
+            String arg = request[i];
+            if (arg.equals(CompileClient.STOP)) continue;
+            if (arg.equals("--stats") || arg.equals("--stats=json")) {
+                stats = arg;
+            } else if (arg.startsWith("--")) {
+                err.write("Option " + arg + " is not supported by the compile daemon; run Compiler directly.\n");
+                return 2;
+            } else {
+                files.add(arg);
+            }
+        }
+
+        int failed = 0;
+        for (String arg : files) {
+            try {
+                Path path = cwd.resolve(arg);
+                CompileStats phases = stats != null ? new CompileStats(arg) : null;
+                if (cache != null) {
+                    out.write((phases != null ? cache.compile(path, phases) : cache.compile(path)).code);
+                } else if (phases != null) {
+                    out.write(lexer.compile(path, phases, true).code);
+                } else {
+                    // same passes as Lexical_Analyzer.File_reader, streamed into the reply
+                    AST.Program program = new Optimizer().optimize(lexer.parse(path, false));
+                    new CodeGenerator().generate(program, out);
+                }
+                if (phases != null) err.write(report(phases, stats));
+            } catch (IOException | RuntimeException e) {
+                if (out.broken || err.broken) throw e;  // the client went away
+                err.write(arg + ": " + e + "\n");
+                failed++;
+            }
+        }
+        return failed > 0 ? 1 : 0;
+    }
+
+    private static String report(CompileStats phases, String format) {
+        if (format.equals("--stats=json")) return phases.toJson() + "\n";
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        phases.print(new PrintStream(text, true, StandardCharsets.UTF_8));
+        return text.toString(StandardCharsets.UTF_8);
+    }
+
+    // =============== FRAMES ===============
+    private static void writeFrame(SocketChannel client, byte tag, byte[] payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(5 + payload.length);
+        frame.put(tag).putInt(payload.length).put(payload).flip();
+        while (frame.hasRemaining()) client.write(frame);
+    }
+
+    // Buffers text and sends it as UTF-8 frames of one tag, FRAME chars at a time.
+    private static final class FrameWriter extends Writer {
+        private final SocketChannel client;
+        private final byte tag;
+        private final StringBuilder pending = new StringBuilder(FRAME);
+        boolean broken;  // a write to the client failed
+
+        FrameWriter(SocketChannel client, byte tag) {
+            this.client = client;
+            this.tag = tag;
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) throws IOException {
+            pending.append(chars, off, len);
+            if (pending.length() >= FRAME) send(false);
+        }
+
+        @Override
+        public void write(String text) throws IOException {
+            pending.append(text);
+            if (pending.length() >= FRAME) send(false);
+        }
+
+        @Override
+        public Writer append(CharSequence text) throws IOException {
+            pending.append(text);
+            if (pending.length() >= FRAME) send(false);
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            send(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        // A high surrogate at the end waits for its pair, so no frame splits a character.
+        private void send(boolean all) throws IOException {
+            int end = pending.length();
+            if (!all && end > 0 && Character.isHighSurrogate(pending.charAt(end - 1))) end--;
+            if (end == 0) return;
+            try {
+                writeFrame(client, tag, pending.substring(0, end).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                broken = true;
+                throw e;
+            }
+            pending.delete(0, end);
+        }
+    }
+}
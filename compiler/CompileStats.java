@@ -0,0 +1,211 @@
+package compiler;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Per-phase measurements of one compilation: wall time, bytes allocated by the
+// compiling thread (plus any worker threads reported with addAllocated) and a
+// phase-specific count (tokens, AST nodes, errors, ...).
+// Each phase is also committed as a JFR event, so a flight recording
+// (-XX:StartFlightRecording) shows the phases without --stats.
+public final class CompileStats {
+    public enum Phase {
+        READ("bytes"),
+        LEX("tokens"),
+        PARSE("nodes"),
+        SEMANTIC("errors"),
+        OPTIMIZE("removed"),
+        CODEGEN("chars"),
+        BYTECODE("bytes");
+
+        public final String unit;
+
+        Phase(String unit) {
+            this.unit = unit;
+        }
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    // Measurement of one phase.
+    public static final class Entry {
+        public final Phase phase;
+        public final long nanos;
+        public final long allocatedBytes;  // -1 when the JVM cannot measure it
+        public final long count;
+
+        Entry(Phase phase, long nanos, long allocatedBytes, long count) {
+            this.phase = phase;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+            this.count = count;
+        }
+    }
+
+    @Name("proglang.CompilePhase")
+    @Label("Compile Phase")
+    @Category("proglang")
+    @Description("One phase of compiling a proglang source file")
+    static final class PhaseEvent extends jdk.jfr.Event {
+        @Label("File")
+        String file;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Count")
+        long count;
+
+        @Label("Unit")
+        String unit;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    public final String file;
+    public final List<Entry> entries = new ArrayList<>();
+
+    private Phase phase;
+    private long started;
+    private long allocatedAtStart;
+    private long allocatedElsewhere;
+    private PhaseEvent event;
+
+    public CompileStats(String file) {
+        this.file = file;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)) return null;
+        if (!bean.isThreadAllocatedMemorySupported()) return null;
+        if (!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+        return bean;
+    }
+
+    // Bytes allocated so far by the current thread, -1 when the JVM cannot measure it.
+    static long allocated() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // =============== RECORDING ===============
+    public void begin(Phase phase) {
+        if (this.phase != null) throw new IllegalStateException("Phase " + this.phase + " still running");
+        this.phase = phase;
+        event = new PhaseEvent();
+        event.begin();
+        allocatedElsewhere = 0;
+        allocatedAtStart = allocated();
+        started = System.nanoTime();
+    }
+
+    // Allocation done for the running phase on other threads (e.g. ForkJoin workers).
+    public void addAllocated(long bytes) {
+        if (phase == null) throw new IllegalStateException("No phase running");
+        allocatedElsewhere += bytes;
+    }
+
+    public void end(long count) {
+        long nanos = System.nanoTime() - started;
+        long bytes = allocatedAtStart < 0 ? -1 : allocated() - allocatedAtStart + allocatedElsewhere;
+        record(nanos, bytes, count);
+    }
+
+    // The clock and the allocation counter stop before count runs, so a
+    // count that walks the result is not charged to the phase.
+    public void end(LongSupplier count) {
+        long nanos = System.nanoTime() - started;
+        long bytes = allocatedAtStart < 0 ? -1 : allocated() - allocatedAtStart + allocatedElsewhere;
+        record(nanos, bytes, count.getAsLong());
+    }
+
+    private void record(long nanos, long bytes, long count) {
+        entries.add(new Entry(phase, nanos, bytes, count));
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = file;
+            event.phase = phase.label();
+            event.count = count;
+            event.unit = phase.unit;
+            event.allocated = bytes;
+            event.commit();
+        }
+        event = null;
+        phase = null;
+    }
+
+    public long totalNanos() {
+        long total = 0;
+        for (Entry e : entries) total += e.nanos;
+        return total;
+    }
+
+    public long totalAllocatedBytes() {
+        long total = 0;
+        for (Entry e : entries) {
+            if (e.allocatedBytes < 0) return -1;
+            total += e.allocatedBytes;
+        }
+        return total;
+    }
+
+    // =============== REPORTS ===============
+    public void print(PrintStream out) {
+        out.println("🔹 STATS: " + file);
+        out.printf("   %-10s %10s %12s %12s%n", "phase", "time ms", "alloc KB", "count");
+        for (Entry e : entries) {
+            out.printf("   %-10s %10.3f %12s %12d %s%n", e.phase.label(), e.nanos / 1e6, kilobytes(e.allocatedBytes), e.count, e.phase.unit);
+        }
+        out.printf("   %-10s %10.3f %12s%n", "total", totalNanos() / 1e6, kilobytes(totalAllocatedBytes()));
+    }
+
+    private static String kilobytes(long bytes) {
+        return bytes < 0 ? "n/a" : String.format("%.1f", bytes / 1024.0);
+    }
+
+    // One JSON object per compilation, on a single line.
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"file\":");
+        quote(sb, file);
+        sb.append(",\"phases\":[");
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"phase\":\"").append(e.phase.label())
+              .append("\",\"nanos\":").append(e.nanos)
+              .append(",\"allocatedBytes\":").append(e.allocatedBytes)
+              .append(",\"count\":").append(e.count)
+              .append(",\"unit\":\"").append(e.phase.unit).append("\"}");
+        }
+        sb.append("],\"totalNanos\":").append(totalNanos())
+          .append(",\"totalAllocatedBytes\":").append(totalAllocatedBytes())
+          .append('}');
+        return sb.toString();
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+}
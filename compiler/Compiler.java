@@ -1,11 +1,285 @@
 package compiler;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+
 public class Compiler {
     public static void main(String[] args) {
-        // 1️⃣ Create an instance of Lexical_Analyzer (the file path is already inside File_reader)
+        // 1️⃣ Create an instance of Lexical_Analyzer (it owns the read -> lex -> parse -> generate pipeline)
         Lexical_Analyzer lexer = new Lexical_Analyzer("");
 
-        // 2️⃣ Call the File_reader method to read the file, tokenize, parse, and generate code
-        lexer.File_reader();
+        // 2️⃣ No arguments: compile the bundled sample program
+        if (args.length == 0) {
+            try {
+                System.out.print(lexer.File_reader());
+            } catch (IOException e) {
+                System.err.println(Lexical_Analyzer.SAMPLE + ": " + e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        // 3️⃣ --batch [--threads N] [--class] [--cache DIR] [--trace LEVEL] <dir|file>...: compile everything in parallel
+        if (args[0].equals("--batch")) {
+            System.exit(batch(args) > 0 ? 1 : 0);
+        }
+
+        // 4️⃣ --watch <file>: recompile incrementally on every save
+        if (args[0].equals("--watch") && args.length == 2) {
+            watch(Path.of(args[1]));
+            return;
+        }
+
+        // 5️⃣ --serve [--socket PATH] [--cache DIR] [--trace LEVEL]: compile daemon for CompileClient
+        if (args[0].equals("--serve")) {
+            System.exit(serve(args));
+        }
+
+        // 6️⃣ Otherwise compile every file given on the command line
+        //    --run   compile to JVM bytecode and execute it
+        //    --class write <Name>.class next to each source file
+        //    --interpret execute the program with the tree-walking interpreter
+        //    --vm    execute the program on the register VM
+        //    --ast   write the parsed program to <Name>.ast next to each source file
+        //    --cache DIR  reuse earlier results for byte-identical sources
+        //    --stats print time, allocation and counts of every phase to stderr
+        //            (--stats=json: one JSON line per file instead)
+        //    --parallel N  analyze and generate each file on N threads, split
+        //                  by top-level statements (same output as sequential)
+        //    --trace LEVEL  diagnostics on stderr: off, error, warn (default), info, debug, trace
+        //    Inputs ending in .ast are loaded pre-parsed instead of being compiled.
+        boolean run = false;
+        boolean interpret = false;
+        boolean vm = false;
+        boolean emitClass = false;
+        boolean emitAst = false;
+        CompileCache cache = null;
+        String stats = null;
+        int failed = 0;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--cache") && i + 1 < args.length) {
+                cache = openCache(args[++i]);
+                if (cache == null) failed++;
+                continue;
+            }
+            if (arg.equals("--trace") && i + 1 < args.length) {
+                Trace.level(Trace.parseLevel(args[++i]));
+                continue;
+            }
+            if (arg.equals("--parallel") && i + 1 < args.length) {
+                lexer.parallel = new ParallelCompiler(Integer.parseInt(args[++i]));
+                continue;
+            }
+            if (arg.equals("--stats") || arg.equals("--stats=json")) {
+                stats = arg;
+                continue;
+            }
+            if (arg.equals("--run")) {
+                run = true;
+                continue;
+            }
+            if (arg.equals("--interpret")) {
+                interpret = true;
+                continue;
+            }
+            if (arg.equals("--vm")) {
+                vm = true;
+                continue;
+            }
+            if (arg.equals("--class")) {
+                emitClass = true;
+                continue;
+            }
+            if (arg.equals("--ast")) {
+                emitAst = true;
+                continue;
+            }
+            try {
+                Path path = Path.of(arg);
+                AST.Program program = null;
+                CompileCache.Entry entry = null;
+                // the parallel passes are wired into the measured pipeline, so it is used for both
+                CompileStats phases = stats != null || lexer.parallel != null ? new CompileStats(arg) : null;
+                boolean defaultMode = !run && !emitClass && !interpret && !vm && !emitAst;
+                if (arg.endsWith(AstFormat.EXTENSION)) {
+                    program = AstFormat.read(path);
+                } else if (cache != null) {
+                    entry = phases != null ? cache.compile(path, phases) : cache.compile(path);
+                } else if (phases != null) {
+                    entry = lexer.compile(path, phases, defaultMode);
+                }
+                if (defaultMode) {
+                    if (program != null && lexer.parallel != null) {
+                        System.out.print(lexer.parallel.generate(program));
+                    } else if (program != null) {
+                        // streamed straight to stdout; the code is never held in memory
+                        System.out.flush();
+                        new CodeGenerator().generate(program, Channels.newChannel(System.out));
+                        System.out.flush();
+                    } else {
+                        System.out.print(entry != null ? entry.code : lexer.File_reader(path));
+                    }
+                    report(phases, stats);
+                    continue;
+                }
+                if (program == null) {
+                    program = entry != null ? entry.program() : new Optimizer().optimize(lexer.parse(path, false));
+                }
+                if (emitAst) {
+                    Path parent = path.toAbsolutePath().getParent();
+                    Files.write(parent.resolve(className(path) + AstFormat.EXTENSION), AstFormat.write(program));
+                }
+                if (interpret || vm || (!run && !emitClass)) {
+                    report(phases, stats);
+                    if (interpret) new Interpreter().run(program);
+                    else if (vm) new RegisterVM().run(program);
+                    continue;
+                }
+                String className = className(path);
+                if (phases != null) phases.begin(CompileStats.Phase.BYTECODE);
+                byte[] bytes = new BytecodeGenerator().generate(program, className);
+                if (phases != null) phases.end(bytes.length);
+                report(phases, stats);
+                if (emitClass) {
+                    Path parent = path.toAbsolutePath().getParent();
+                    Files.write(parent.resolve(className + ".class"), bytes);
+                }
+                if (run) new ProgramClassLoader().run(className, bytes);
+            } catch (IOException | RuntimeException e) {
+                System.err.println(arg + ": " + e);
+                failed++;
+            }
+        }
+        if (failed > 0) System.exit(1);
+    }
+
+    private static int batch(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean emitClass = false;
+        CompileCache cache = null;
+        List<Path> roots = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cache = openCache(args[++i]);
+                if (cache == null) return 1;
+            } else if (args[i].equals("--trace") && i + 1 < args.length) {
+                Trace.level(Trace.parseLevel(args[++i]));
+            } else if (args[i].equals("--class")) {
+                emitClass = true;
+            } else {
+                roots.add(Path.of(args[i]));
+            }
+        }
+        try {
+            List<Path> files = BatchCompiler.collect(roots);
+            long start = System.nanoTime();
+            BatchCompiler.Result[] results = new BatchCompiler(threads, emitClass, cache).compile(files);
+            int failed = BatchCompiler.report(results, System.nanoTime() - start, threads, System.out);
+            if (cache != null) {
+                System.out.printf("🔹 CACHE: %d hits, %d misses%n", cache.hits.get(), cache.misses.get());
+            }
+            return failed;
+        } catch (IOException e) {
+            System.err.println(e);
+            return 1;
+        }
+    }
+
+    private static int serve(String[] args) {
+        Path socket = CompileClient.defaultSocket();
+        CompileCache cache = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--socket") && i + 1 < args.length) {
+                socket = Path.of(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cache = openCache(args[++i]);
+                if (cache == null) return 1;
+            } else if (args[i].equals("--trace") && i + 1 < args.length) {
+                Trace.level(Trace.parseLevel(args[++i]));
+            } else {
+                System.err.println("Unknown --serve option: " + args[i]);
+                return 1;
+            }
+        }
+        try {
+            new CompileServer(socket, cache).run();
+            return 0;
+        } catch (IOException e) {
+            System.err.println(socket + ": " + e);
+            return 1;
+        }
+    }
+
+    private static void report(CompileStats phases, String format) {
+        if (phases == null || format == null) return;
+        Trace.flush();  // keep this file's trace output ahead of its report
+        if (format.equals("--stats=json")) System.err.println(phases.toJson());
+        else phases.print(System.err);
+    }
+
+    private static CompileCache openCache(String dir) {
+        try {
+            return new CompileCache(Path.of(dir), CompileCache.DEFAULT_MAX_BYTES);
+        } catch (IOException e) {
+            System.err.println(dir + ": " + e);
+            return null;
+        }
+    }
+
+    private static void watch(Path path) {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        Path name = path.getFileName();
+        try (WatchService watcher = path.getFileSystem().newWatchService()) {
+            path.toAbsolutePath().getParent().register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                long start = System.nanoTime();
+                try {
+                    System.out.print(compiler.compile(path));
+                    System.out.printf("🔹 INCREMENTAL: %d regions, %d reparsed, %d regenerated in %.2f ms%n",
+                            compiler.regions, compiler.reparsed, compiler.regenerated, (System.nanoTime() - start) / 1e6);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println(path + ": " + e);
+                }
+                // block until this file changes again
+                boolean changed = false;
+                while (!changed) {
+                    WatchKey key = watcher.take();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (name.equals(event.context())) changed = true;
+                    }
+                    key.reset();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(path + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Java class name derived from the source file name.
+    static String className(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) name = name.substring(0, dot);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) sb.insert(0, '_');
+        return sb.toString();
     }
 }
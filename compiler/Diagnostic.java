@@ -0,0 +1,42 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One problem found in a source file. The parser only knows source offsets;
+// line and column (both 1-based, 0 until known) are filled in through a
+// LineIndex once parsing is over, so the happy path never counts lines.
+public final class Diagnostic {
+    public final int offset;
+    public final int line;
+    public final int column;
+    public final String message;
+
+    public Diagnostic(int offset, String message) {
+        this(offset, 0, 0, message);
+    }
+
+    private Diagnostic(int offset, int line, int column, String message) {
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public Diagnostic locate(LineIndex lines) {
+        int line = lines.line(offset);
+        return new Diagnostic(offset, line, offset - lines.lineStart(line) + 1, message);
+    }
+
+    public static List<Diagnostic> locate(List<Diagnostic> diagnostics, CharSequence source) {
+        LineIndex lines = new LineIndex(source);
+        List<Diagnostic> located = new ArrayList<>(diagnostics.size());
+        for (Diagnostic d : diagnostics) located.add(d.locate(lines));
+        return located;
+    }
+
+    @Override
+    public String toString() {
+        return line > 0 ? line + ":" + column + ": " + message : "offset " + offset + ": " + message;
+    }
+}
@@ -0,0 +1,473 @@
+package compiler;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Recompiles a file that is edited repeatedly, redoing only what changed.
+// The source is cut into top-level statement regions by a cheap character
+// scan. Between compiles the region list is kept; a new version of the file is
+// compared with the last one and only the span between their common prefix and
+// common suffix is rescanned. Rescanned regions are looked up by their text
+// before anything is lexed or parsed, so moved or restored statements are
+// reused too. Regions are lexed in place in the file's text, so their AST
+// offsets and syntax errors are file positions (a reused region keeps the
+// offsets of where it was first parsed). Every rescanned region is parsed
+// before anything is reported, and one SyntaxError lists the errors of all of
+// them.
+//
+// Generated code depends on the variable values the generator has seen so
+// far, so every region also keeps the code it produced together with the
+// values it read and wrote. After the edited span, regions are regenerated
+// only while some variable they read still differs from the last compile;
+// once nothing differs, the rest of the previous output is copied as is.
+//
+// Limitation: only lexing, parsing and code generation scale with the edit.
+// A compile still costs O(file size): the whole new text is copied and
+// compared with the old one, the variable writes of every region before the
+// edit are replayed into a fresh generator, and the whole output String is
+// rebuilt. Those steps are plain array and map work, far cheaper per character
+// than compiling, but a very large file pays them on every keystroke. Making
+// them proportional to the edit would need an edit-based API in place of
+// compile(String) and a rope-like output.
+public class IncrementalCompiler {
+    private static final Object ABSENT = new Object();  // variable not assigned yet
+    private static final int VARIANTS = 4;               // fragments kept per region
+
+    // Stats of the last compile.
+    public int regions = 0;
+    public int reparsed = 0;
+    public int regenerated = 0;
+
+    private static final class Region {
+        final String text;
+        final List<AST.Stmt> statements;
+        final int[] reads;   // Symbols ids
+        final int[] writes;
+        final List<Fragment> fragments = new ArrayList<>(1);
+        int uses = 0;  // occurrences in the current source
+
+        Region(String text, List<AST.Stmt> statements, int[] reads, int[] writes) {
+            this.text = text;
+            this.statements = statements;
+            this.reads = reads;
+            this.writes = writes;
+        }
+    }
+
+    private static final class Fragment {
+        final Object[] inputs;   // values of reads when generated
+        final Object[] outputs;  // values of writes afterwards
+        final String code;
+
+        Fragment(Object[] inputs, Object[] outputs, String code) {
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.code = code;
+        }
+    }
+
+    // =============== STATE OF THE LAST COMPILE ===============
+    private char[] source;
+    private int count = 0;
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private Region[] regionAt = new Region[0];
+    private Fragment[] fragmentAt = new Fragment[0];
+    private int[] outEnds = new int[0];  // output length after each region
+    private String output = "";
+    private final Map<String, Region> cache = new HashMap<>();  // region text -> region
+
+    public String compile(Path path) throws IOException {
+        return compile(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    public String compile(String text) {
+        char[] next = text.toCharArray();
+        reparsed = regenerated = 0;
+
+        // 1️⃣ Locate the edit: regions before keep and from resume on are unchanged
+        int keep = 0;
+        int delta = 0;
+        int suffixStart = Integer.MAX_VALUE;
+        if (source != null) {
+            int prefix = Arrays.mismatch(source, next);
+            if (prefix < 0) {
+                regions = count;
+                return output;
+            }
+            int max = Math.min(source.length, next.length) - prefix;
+            int suffix = 0;
+            while (suffix < max && source[source.length - 1 - suffix] == next[next.length - 1 - suffix]) suffix++;
+            keep = firstEndingAtOrAfter(prefix);
+            // text added after a closing brace may be an edi branch of that region
+            if (keep > 0 && source[ends[keep - 1] - 1] == '}') keep--;
+            delta = next.length - source.length;
+            suffixStart = source.length - suffix;
+        }
+
+        // 2️⃣ Rescan the edited span until the scan lines up with an unchanged region
+        List<Region> window = new ArrayList<>();
+        List<int[]> windowSpans = new ArrayList<>();
+        Map<String, Region> parsed = new HashMap<>();
+        List<Diagnostic> errors = new ArrayList<>();
+        int resume = count;
+        int pos = keep > 0 ? ends[keep - 1] : 0;
+        while (true) {
+            while (pos < next.length && next[pos] <= ' ') pos++;
+            if (pos == next.length) break;
+            if (pos - delta >= suffixStart) {
+                int j = Arrays.binarySearch(starts, keep, count, pos - delta);
+                if (j >= 0) {
+                    resume = j;
+                    break;
+                }
+            }
+            int end = regionEnd(next, pos);
+            String key = new String(next, pos, end - pos);
+            Region region = cache.get(key);
+            if (region == null) region = parsed.get(key);
+            if (region == null) {
+                region = parse(key, next, pos, end, errors);
+                reparsed++;
+                if (region == null) {
+                    // keep going, so the errors of every region are reported
+                    pos = end;
+                    continue;
+                }
+                parsed.put(key, region);
+            }
+            window.add(region);
+            windowSpans.add(new int[] {pos, end});
+            pos = end;
+        }
+        // nothing has changed yet: the next compile starts again from the last good one
+        if (!errors.isEmpty()) throw new SyntaxError(errors).locate(CharBuffer.wrap(next));
+
+        // 3️⃣ Variable values at the start of the edited span
+        CodeGenerator generator = new CodeGenerator();
+        for (int i = 0; i < keep; i++) apply(regionAt[i], fragmentAt[i], generator);
+        Map<Integer, Object> before = new HashMap<>();
+        for (int i = keep; i < resume; i++) remember(regionAt[i], generator, before);
+        for (Region region : window) remember(region, generator, before);
+
+        // values the old version of the span left behind
+        Map<Integer, Object> old = new HashMap<>(before);
+        for (int i = keep; i < resume; i++) {
+            Region region = regionAt[i];
+            for (int w = 0; w < region.writes.length; w++) old.put(region.writes[w], fragmentAt[i].outputs[w]);
+        }
+
+        // 4️⃣ Generate the span, then follow changed values into later regions
+        List<Fragment> windowFragments = new ArrayList<>(window.size());
+        for (Region region : window) windowFragments.add(generate(region, generator));
+        Set<Integer> dirty = new HashSet<>();
+        for (Map.Entry<Integer, Object> e : old.entrySet()) {
+            if (!Objects.equals(valueOf(generator, e.getKey()), e.getValue())) dirty.add(e.getKey());
+        }
+
+        int copyFrom = resume;
+        List<Fragment> followed = new ArrayList<>();
+        while (copyFrom < count && !dirty.isEmpty()) {
+            Region region = regionAt[copyFrom];
+            Fragment previous = fragmentAt[copyFrom];
+            Fragment fragment = previous;
+            if (readsAny(region, dirty)) {
+                fragment = generate(region, generator);
+            } else {
+                apply(region, previous, generator);
+            }
+            for (int w = 0; w < region.writes.length; w++) {
+                if (Objects.equals(fragment.outputs[w], previous.outputs[w])) dirty.remove(region.writes[w]);
+                else dirty.add(region.writes[w]);
+            }
+            followed.add(fragment);
+            copyFrom++;
+        }
+
+        // 5️⃣ Commit: splice the new regions and output between the unchanged ends
+        int total = keep + window.size() + (count - resume);
+        int[] newStarts = new int[total];
+        int[] newEnds = new int[total];
+        Region[] newRegions = new Region[total];
+        Fragment[] newFragments = new Fragment[total];
+        int[] newOutEnds = new int[total];
+        System.arraycopy(starts, 0, newStarts, 0, keep);
+        System.arraycopy(ends, 0, newEnds, 0, keep);
+        System.arraycopy(regionAt, 0, newRegions, 0, keep);
+        System.arraycopy(fragmentAt, 0, newFragments, 0, keep);
+        System.arraycopy(outEnds, 0, newOutEnds, 0, keep);
+
+        StringBuilder out = new StringBuilder(output.length() + 64);
+        out.append(output, 0, keep > 0 ? outEnds[keep - 1] : 0);
+        int at = keep;
+        for (int i = 0; i < window.size(); i++, at++) {
+            newStarts[at] = windowSpans.get(i)[0];
+            newEnds[at] = windowSpans.get(i)[1];
+            newRegions[at] = window.get(i);
+            newFragments[at] = windowFragments.get(i);
+            out.append(newFragments[at].code);
+            newOutEnds[at] = out.length();
+        }
+        for (int i = resume; i < count; i++, at++) {
+            newStarts[at] = starts[i] + delta;
+            newEnds[at] = ends[i] + delta;
+            newRegions[at] = regionAt[i];
+            newFragments[at] = i < copyFrom ? followed.get(i - resume) : fragmentAt[i];
+            if (i < copyFrom) {
+                out.append(newFragments[at].code);
+                newOutEnds[at] = out.length();
+            }
+        }
+        int copied = copyFrom > 0 ? outEnds[copyFrom - 1] : 0;
+        int shift = out.length() - copied;
+        out.append(output, copied, output.length());
+        for (int i = copyFrom, j = keep + window.size() + (copyFrom - resume); i < count; i++, j++) {
+            newOutEnds[j] = outEnds[i] + shift;
+        }
+
+        for (Region region : window) {
+            if (region.uses++ == 0) cache.put(region.text, region);
+        }
+        for (int i = keep; i < resume; i++) {
+            if (--regionAt[i].uses == 0) cache.remove(regionAt[i].text);
+        }
+
+        source = next;
+        count = total;
+        starts = newStarts;
+        ends = newEnds;
+        regionAt = newRegions;
+        fragmentAt = newFragments;
+        outEnds = newOutEnds;
+        output = out.toString();
+        regions = total;
+        return output;
+    }
+
+    // index of the first region whose end is at or after offset
+    private int firstEndingAtOrAfter(int offset) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] < offset) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // =============== FRAGMENTS ===============
+    // Reuses a fragment generated from the same inputs, or generates a new one.
+    private Fragment generate(Region region, CodeGenerator generator) {
+        Object[] inputs = new Object[region.reads.length];
+        for (int i = 0; i < inputs.length; i++) inputs[i] = valueOf(generator, region.reads[i]);
+        for (Fragment f : region.fragments) {
+            if (Arrays.equals(f.inputs, inputs)) {
+                apply(region, f, generator);
+                return f;
+            }
+        }
+        StringBuilder code = new StringBuilder();
+        for (AST.Stmt stmt : region.statements) code.append(generator.generateFragment(stmt));
+        Object[] outputs = new Object[region.writes.length];
+        for (int i = 0; i < outputs.length; i++) outputs[i] = valueOf(generator, region.writes[i]);
+        Fragment fragment = new Fragment(inputs, outputs, code.toString());
+        if (region.fragments.size() == VARIANTS) region.fragments.remove(0);
+        region.fragments.add(fragment);
+        regenerated++;
+        return fragment;
+    }
+
+    private static Object valueOf(CodeGenerator generator, int symbol) {
+        Object value = generator.value(symbol);
+        return value != null ? value : ABSENT;
+    }
+
+    private static void apply(Region region, Fragment fragment, CodeGenerator generator) {
+        for (int i = 0; i < region.writes.length; i++) {
+            Object value = fragment.outputs[i];
+            if (value == ABSENT) generator.unassign(region.writes[i]);
+            else generator.assign(region.writes[i], value);
+        }
+    }
+
+    private static void remember(Region region, CodeGenerator generator, Map<Integer, Object> into) {
+        for (int symbol : region.writes) into.putIfAbsent(symbol, valueOf(generator, symbol));
+    }
+
+    private static boolean readsAny(Region region, Set<Integer> symbols) {
+        for (int symbol : region.reads) {
+            if (symbols.contains(symbol)) return true;
+        }
+        return false;
+    }
+
+    // =============== PARSING ===============
+    // Parses source[from, to); on syntax errors adds them to errors and returns null.
+    private static Region parse(String text, char[] source, int from, int to, List<Diagnostic> errors) {
+        parser Parser = new parser(new TableLexer(source, from, to));
+        AST.Program parsed = Parser.parseRecovering();
+        if (!Parser.diagnostics.isEmpty()) {
+            errors.addAll(Parser.diagnostics);
+            return null;
+        }
+        AST.Program program = new Optimizer().optimize(parsed);
+        Names names = new Names();
+        for (AST.Stmt stmt : program.statements) names.add(stmt);
+        return new Region(text, program.statements, ids(names.reads), ids(names.writes));
+    }
+
+    private static int[] ids(Set<Integer> symbols) {
+        int[] ids = new int[symbols.size()];
+        int i = 0;
+        for (int symbol : symbols) ids[i++] = symbol;
+        return ids;
+    }
+
+    // =============== REGIONS ===============
+    // End of the top-level statement starting at start: the ';' or closing '}'
+    // at nesting depth 0, with `edi` after a '}' continuing the same ug statement.
+    static int regionEnd(char[] text, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < text.length) {
+            char c = text[i++];
+            if (c == '"') {
+                while (i < text.length && text[i] != '"') i++;
+                if (i < text.length) i++;
+            } else if (c == '(' || c == '{') {
+                depth++;
+            } else if (c == ')') {
+                if (depth > 0) depth--;
+            } else if (c == '}') {
+                if (depth > 0) depth--;
+                if (depth == 0 && !followedByEdi(text, i)) return i;
+            } else if (c == ';' && depth == 0) {
+                return i;
+            }
+        }
+        return text.length;
+    }
+
+    private static boolean followedByEdi(char[] text, int i) {
+        while (i < text.length && text[i] <= ' ') i++;
+        if (i + 3 > text.length || text[i] != 'e' || text[i + 1] != 'd' || text[i + 2] != 'i') return false;
+        return i + 3 == text.length || !isWordChar(text[i + 3]);
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    // =============== NAMES ===============
+    // Symbols a region reads and writes, in first-seen order.
+    private static final class Names implements AST.StmtVisitor<Void>, AST.ExprVisitor<Void> {
+        final Set<Integer> reads = new LinkedHashSet<>();
+        final Set<Integer> writes = new LinkedHashSet<>();
+
+        void add(AST.Stmt stmt) {
+            if (stmt != null) AST.visit(stmt, this);
+        }
+
+        void add(AST.Expr expr) {
+            if (expr != null) AST.visit(expr, this);
+        }
+
+        @Override
+        public Void visitVarDecl(AST.VarDecl v) {
+            add(v.initializer);
+            writes.add(v.symbol);
+            return null;
+        }
+
+        @Override
+        public Void visitPrint(AST.Print p) {
+            add(p.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(AST.ExpressionStmt e) {
+            add(e.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(AST.Block b) {
+            for (AST.Stmt s : b.statements) add(s);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(AST.IfStmt i) {
+            add(i.condition);
+            add(i.thenBranch);
+            add(i.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(AST.WhileStmt w) {
+            add(w.condition);
+            add(w.body);
+            return null;
+        }
+
+        @Override
+        public Void visitForStmt(AST.ForStmt f) {
+            add(f.initializer);
+            add(f.condition);
+            add(f.increment);
+            add(f.body);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(AST.Literal l) {
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(AST.Variable v) {
+            reads.add(v.symbol);
+            return null;
+        }
+
+        @Override
+        public Void visitBinary(AST.Binary b) {
+            add(b.left);
+            add(b.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnary(AST.Unary u) {
+            add(u.right);
+            return null;
+        }
+
+        @Override
+        public Void visitGrouping(AST.Grouping g) {
+            add(g.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(AST.Assignment a) {
+            add(a.value);
+            writes.add(a.symbol);
+            return null;
+        }
+    }
+}
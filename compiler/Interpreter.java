@@ -0,0 +1,871 @@
+package compiler;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Execution engine that walks a resolved copy of the AST. Before running,
+// every variable is bound to a slot in one of three primitive frame arrays
+// (ints for tibuok/karakter/booleans, doubles for lutaw/duhay, refs for karhan)
+// and every node knows its static type, so evaluation never looks up a name
+// or boxes a number.
+public class Interpreter {
+    private final PrintStream out;
+
+    public Interpreter() {
+        this(System.out);
+    }
+
+    public Interpreter(PrintStream out) {
+        this.out = out;
+    }
+
+    public void run(AST.Program program) {
+        Resolver resolver = new Resolver();
+        Stmt code = resolver.program(program);
+        Frame frame = new Frame(resolver.maxInts, resolver.maxDoubles, resolver.maxRefs, out);
+        code.exec(frame);
+    }
+
+    // =============== FRAME ===============
+    static final class Frame {
+        final int[] ints;
+        final double[] doubles;
+        final Object[] refs;
+        final PrintStream out;
+
+        Frame(int ints, int doubles, int refs, PrintStream out) {
+            this.ints = new int[ints];
+            this.doubles = new double[doubles];
+            this.refs = new Object[refs];
+            this.out = out;
+        }
+    }
+
+    // =============== RESOLVER ===============
+    // Turns AST nodes into executable nodes, assigning slots per scope.
+    private static final class Resolver implements AST.StmtVisitor<Stmt>, AST.ExprVisitor<Expr> {
+        private final Deque<Map<String, Slot>> scopes = new ArrayDeque<>();
+        private int nextInt, nextDouble, nextRef;
+        int maxInts, maxDoubles, maxRefs;
+
+        Stmt program(AST.Program program) {
+            scopes.push(new HashMap<>());
+            return new Sequence(statements(program.statements));
+        }
+
+        private Stmt[] statements(List<AST.Stmt> list) {
+            Stmt[] out = new Stmt[list.size()];
+            for (int i = 0; i < out.length; i++) out[i] = stmt(list.get(i));
+            return out;
+        }
+
+        // a new scope reuses the slots its enclosing scope has not claimed yet
+        private int[] enter() {
+            scopes.push(new HashMap<>());
+            return new int[] { nextInt, nextDouble, nextRef };
+        }
+
+        private void exit(int[] saved) {
+            scopes.pop();
+            nextInt = saved[0];
+            nextDouble = saved[1];
+            nextRef = saved[2];
+        }
+
+        private Stmt stmt(AST.Stmt stmt) {
+            return AST.visit(stmt, this);
+        }
+
+        @Override
+        public Stmt visitVarDecl(AST.VarDecl v) {
+            ValueType type = ValueType.declared(v.type);
+            Map<String, Slot> scope = scopes.peek();
+            if (scope.containsKey(v.name)) throw new RuntimeException("Variable '" + v.name + "' already declared.");
+            Expr init = v.initializer != null ? convert(expr(v.initializer), type) : defaultValue(type);
+            Slot slot = allocate(type);
+            scope.put(v.name, slot);
+            return new ExprStmt(store(slot, init));
+        }
+
+        @Override
+        public Stmt visitPrint(AST.Print p) {
+            return new Print(expr(p.expression));
+        }
+
+        @Override
+        public Stmt visitExpressionStmt(AST.ExpressionStmt e) {
+            return new ExprStmt(expr(e.expression));
+        }
+
+        @Override
+        public Stmt visitBlock(AST.Block b) {
+            int[] saved = enter();
+            Stmt block = new Sequence(statements(b.statements));
+            exit(saved);
+            return block;
+        }
+
+        @Override
+        public Stmt visitIfStmt(AST.IfStmt i) {
+            Expr cond = condition(i.condition);
+            Stmt then = stmt(i.thenBranch);
+            Stmt otherwise = i.elseBranch != null ? stmt(i.elseBranch) : null;
+            return new If(cond, then, otherwise);
+        }
+
+        @Override
+        public Stmt visitWhileStmt(AST.WhileStmt w) {
+            return new While(condition(w.condition), stmt(w.body));
+        }
+
+        @Override
+        public Stmt visitForStmt(AST.ForStmt f) {
+            int[] saved = enter();
+            Stmt init = f.initializer != null ? stmt(f.initializer) : null;
+            Expr cond = f.condition != null ? condition(f.condition) : null;
+            Expr step = f.increment != null ? expr(f.increment) : null;
+            Stmt body = stmt(f.body);
+            exit(saved);
+            return new For(init, cond, step, body);
+        }
+
+        private Slot allocate(ValueType type) {
+            switch (type) {
+                case FLOAT:
+                case DOUBLE:
+                    maxDoubles = Math.max(maxDoubles, nextDouble + 1);
+                    return new Slot(type, nextDouble++);
+                case STRING:
+                    maxRefs = Math.max(maxRefs, nextRef + 1);
+                    return new Slot(type, nextRef++);
+                default:
+                    maxInts = Math.max(maxInts, nextInt + 1);
+                    return new Slot(type, nextInt++);
+            }
+        }
+
+        private Slot lookup(String name) {
+            for (Map<String, Slot> scope : scopes) {
+                Slot slot = scope.get(name);
+                if (slot != null) return slot;
+            }
+            throw new RuntimeException("Variable '" + name + "' not declared.");
+        }
+
+        private Expr condition(AST.Expr expr) {
+            Expr cond = expr(expr);
+            if (cond.type != ValueType.BOOLEAN) throw new RuntimeException("Condition must be BOOLEAN, found " + cond.type);
+            return cond;
+        }
+
+        private Expr expr(AST.Expr expr) {
+            return AST.visit(expr, this);
+        }
+
+        @Override
+        public Expr visitLiteral(AST.Literal l) {
+            Object v = l.value;
+            switch (ValueType.ofLiteral(v)) {
+                case INT: return new IntConst(ValueType.INT, (Integer) v);
+                case BOOLEAN: return new IntConst(ValueType.BOOLEAN, (Boolean) v ? 1 : 0);
+                case DOUBLE: return new DoubleConst(ValueType.DOUBLE, (Double) v);
+                default: return new RefConst((String) v);
+            }
+        }
+
+        @Override
+        public Expr visitVariable(AST.Variable v) {
+            Slot slot = lookup(v.name);
+            switch (slot.type) {
+                case FLOAT: case DOUBLE: return new DoubleLoad(slot.type, slot.index);
+                case STRING: return new RefLoad(slot.index);
+                default: return new IntLoad(slot.type, slot.index);
+            }
+        }
+
+        @Override
+        public Expr visitAssignment(AST.Assignment a) {
+            Slot slot = lookup(a.name);
+            return store(slot, convert(expr(a.value), slot.type));
+        }
+
+        @Override
+        public Expr visitGrouping(AST.Grouping g) {
+            return expr(g.expression);
+        }
+
+        @Override
+        public Expr visitUnary(AST.Unary u) {
+            Expr right = expr(u.right);
+            if (u.op == Operator.NOT) {
+                if (right.type != ValueType.BOOLEAN) throw new RuntimeException("Operator ! needs a BOOLEAN, found " + right.type);
+                return new Not(right);
+            }
+            if (!right.type.numeric()) throw new RuntimeException("Operator - needs a number, found " + right.type);
+            if (right.type == ValueType.FLOAT || right.type == ValueType.DOUBLE) return new DoubleNeg(right);
+            return new IntNeg(right);
+        }
+
+        @Override
+        public Expr visitBinary(AST.Binary b) {
+            Expr left = expr(b.left);
+            Expr right = expr(b.right);
+            Operator op = b.op;
+
+            if (op.logical()) {
+                if (left.type != ValueType.BOOLEAN || right.type != ValueType.BOOLEAN) {
+                    throw new RuntimeException("Operator " + op.text + " needs BOOLEAN operands.");
+                }
+                return op == Operator.AND ? new And(left, right) : new Or(left, right);
+            }
+
+            if (op == Operator.ADD && (left.type == ValueType.STRING || right.type == ValueType.STRING)) {
+                return new Concat(left, right);
+            }
+
+            if (op.comparison()) {
+                boolean equality = op == Operator.EQUAL || op == Operator.NOT_EQUAL;
+                if (left.type == ValueType.STRING || right.type == ValueType.STRING
+                        || left.type == ValueType.BOOLEAN || right.type == ValueType.BOOLEAN) {
+                    if (!equality || left.type != right.type) {
+                        throw new RuntimeException("Cannot compare " + left.type + " " + op.text + " " + right.type);
+                    }
+                    if (left.type == ValueType.STRING) return new RefEquals(left, right, op == Operator.EQUAL);
+                    return new IntCompare(op, left, right);
+                }
+                ValueType type = ValueType.promote(left.type, right.type, op);
+                if (type == ValueType.INT) return new IntCompare(op, left, right);
+                return new DoubleCompare(op, convert(left, type), convert(right, type));
+            }
+
+            if (!op.arithmetic()) throw new RuntimeException("Unsupported operator: " + op.text);
+            ValueType type = ValueType.promote(left.type, right.type, op);
+            if (type == ValueType.INT) return new IntArith(op, left, right);
+            return new DoubleArith(type, op, convert(left, type), convert(right, type));
+        }
+
+        private Expr convert(Expr value, ValueType to) {
+            ValueType from = value.type;
+            if (from == to) return value;
+            if (!ValueType.assignable(from, to)) throw new RuntimeException("Cannot convert " + from + " to " + to);
+            switch (to) {
+                case FLOAT: return new ToFloat(value);
+                case DOUBLE: return new ToDouble(value);
+                case CHAR: return new ToChar(value);
+                default: return new Retype(to, value); // CHAR read as INT
+            }
+        }
+
+        private Expr defaultValue(ValueType type) {
+            switch (type) {
+                case FLOAT: case DOUBLE: return new DoubleConst(type, 0);
+                case STRING: return new RefConst(null);
+                default: return new IntConst(type, 0);
+            }
+        }
+
+        private Expr store(Slot slot, Expr value) {
+            switch (slot.type) {
+                case FLOAT: case DOUBLE: return new DoubleStore(slot.index, value);
+                case STRING: return new RefStore(slot.index, value);
+                default: return new IntStore(slot.index, value);
+            }
+        }
+    }
+
+    private static final class Slot {
+        final ValueType type;
+        final int index;
+
+        Slot(ValueType type, int index) {
+            this.type = type;
+            this.index = index;
+        }
+    }
+
+    // =============== STATEMENT NODES ===============
+    abstract static class Stmt {
+        abstract void exec(Frame f);
+    }
+
+    static final class Sequence extends Stmt {
+        private final Stmt[] body;
+
+        Sequence(Stmt[] body) {
+            this.body = body;
+        }
+
+        @Override
+        void exec(Frame f) {
+            for (Stmt s : body) s.exec(f);
+        }
+    }
+
+    static final class ExprStmt extends Stmt {
+        private final Expr expr;
+
+        ExprStmt(Expr expr) {
+            this.expr = expr;
+        }
+
+        @Override
+        void exec(Frame f) {
+            expr.run(f);
+        }
+    }
+
+    static final class Print extends Stmt {
+        private final Expr expr;
+
+        Print(Expr expr) {
+            this.expr = expr;
+        }
+
+        @Override
+        void exec(Frame f) {
+            f.out.println(expr.text(f));
+        }
+    }
+
+    static final class If extends Stmt {
+        private final Expr cond;
+        private final Stmt then;
+        private final Stmt otherwise;
+
+        If(Expr cond, Stmt then, Stmt otherwise) {
+            this.cond = cond;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        @Override
+        void exec(Frame f) {
+            if (cond.test(f)) then.exec(f);
+            else if (otherwise != null) otherwise.exec(f);
+        }
+    }
+
+    static final class While extends Stmt {
+        private final Expr cond;
+        private final Stmt body;
+
+        While(Expr cond, Stmt body) {
+            this.cond = cond;
+            this.body = body;
+        }
+
+        @Override
+        void exec(Frame f) {
+            while (cond.test(f)) body.exec(f);
+        }
+    }
+
+    static final class For extends Stmt {
+        private final Stmt init;
+        private final Expr cond;
+        private final Expr step;
+        private final Stmt body;
+
+        For(Stmt init, Expr cond, Expr step, Stmt body) {
+            this.init = init;
+            this.cond = cond;
+            this.step = step;
+            this.body = body;
+        }
+
+        @Override
+        void exec(Frame f) {
+            if (init != null) init.exec(f);
+            while (cond == null || cond.test(f)) {
+                body.exec(f);
+                if (step != null) step.run(f);
+            }
+        }
+    }
+
+    // =============== EXPRESSION NODES ===============
+    // Each node implements the accessor for its own type: i() for INT, CHAR
+    // and BOOLEAN (0 / 1), d() for FLOAT and DOUBLE, o() for STRING.
+    abstract static class Expr {
+        final ValueType type;
+
+        Expr(ValueType type) {
+            this.type = type;
+        }
+
+        int i(Frame f) {
+            throw new IllegalStateException(type + " read as int");
+        }
+
+        double d(Frame f) {
+            throw new IllegalStateException(type + " read as double");
+        }
+
+        Object o(Frame f) {
+            throw new IllegalStateException(type + " read as reference");
+        }
+
+        boolean test(Frame f) {
+            return i(f) != 0;
+        }
+
+        // evaluate for side effects only
+        void run(Frame f) {
+            switch (type) {
+                case FLOAT: case DOUBLE: d(f); break;
+                case STRING: o(f); break;
+                default: i(f); break;
+            }
+        }
+
+        // printed form, matching what the JVM backend's println overloads produce
+        String text(Frame f) {
+            switch (type) {
+                case INT: return Integer.toString(i(f));
+                case CHAR: return String.valueOf((char) i(f));
+                case BOOLEAN: return i(f) != 0 ? "true" : "false";
+                case FLOAT: return Float.toString((float) d(f));
+                case DOUBLE: return Double.toString(d(f));
+                default: return String.valueOf(o(f));
+            }
+        }
+    }
+
+    static final class IntConst extends Expr {
+        private final int value;
+
+        IntConst(ValueType type, int value) {
+            super(type);
+            this.value = value;
+        }
+
+        @Override
+        int i(Frame f) {
+            return value;
+        }
+    }
+
+    static final class DoubleConst extends Expr {
+        private final double value;
+
+        DoubleConst(ValueType type, double value) {
+            super(type);
+            this.value = type == ValueType.FLOAT ? (float) value : value;
+        }
+
+        @Override
+        double d(Frame f) {
+            return value;
+        }
+    }
+
+    static final class RefConst extends Expr {
+        private final Object value;
+
+        RefConst(Object value) {
+            super(ValueType.STRING);
+            this.value = value;
+        }
+
+        @Override
+        Object o(Frame f) {
+            return value;
+        }
+    }
+
+    static final class IntLoad extends Expr {
+        private final int slot;
+
+        IntLoad(ValueType type, int slot) {
+            super(type);
+            this.slot = slot;
+        }
+
+        @Override
+        int i(Frame f) {
+            return f.ints[slot];
+        }
+    }
+
+    static final class DoubleLoad extends Expr {
+        private final int slot;
+
+        DoubleLoad(ValueType type, int slot) {
+            super(type);
+            this.slot = slot;
+        }
+
+        @Override
+        double d(Frame f) {
+            return f.doubles[slot];
+        }
+    }
+
+    static final class RefLoad extends Expr {
+        private final int slot;
+
+        RefLoad(int slot) {
+            super(ValueType.STRING);
+            this.slot = slot;
+        }
+
+        @Override
+        Object o(Frame f) {
+            return f.refs[slot];
+        }
+    }
+
+    static final class IntStore extends Expr {
+        private final int slot;
+        private final Expr value;
+
+        IntStore(int slot, Expr value) {
+            super(value.type);
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        int i(Frame f) {
+            return f.ints[slot] = value.i(f);
+        }
+    }
+
+    static final class DoubleStore extends Expr {
+        private final int slot;
+        private final Expr value;
+
+        DoubleStore(int slot, Expr value) {
+            super(value.type);
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        double d(Frame f) {
+            return f.doubles[slot] = value.d(f);
+        }
+    }
+
+    static final class RefStore extends Expr {
+        private final int slot;
+        private final Expr value;
+
+        RefStore(int slot, Expr value) {
+            super(ValueType.STRING);
+            this.slot = slot;
+            this.value = value;
+        }
+
+        @Override
+        Object o(Frame f) {
+            return f.refs[slot] = value.o(f);
+        }
+    }
+
+    // lutaw values are kept in the double array, rounded to float precision
+    static final class ToFloat extends Expr {
+        private final Expr value;
+
+        ToFloat(Expr value) {
+            super(ValueType.FLOAT);
+            this.value = value;
+        }
+
+        @Override
+        double d(Frame f) {
+            return value.type == ValueType.DOUBLE ? (float) value.d(f) : (float) value.i(f);
+        }
+    }
+
+    static final class ToDouble extends Expr {
+        private final Expr value;
+
+        ToDouble(Expr value) {
+            super(ValueType.DOUBLE);
+            this.value = value;
+        }
+
+        @Override
+        double d(Frame f) {
+            return value.type == ValueType.FLOAT ? value.d(f) : value.i(f);
+        }
+    }
+
+    static final class ToChar extends Expr {
+        private final Expr value;
+
+        ToChar(Expr value) {
+            super(ValueType.CHAR);
+            this.value = value;
+        }
+
+        @Override
+        int i(Frame f) {
+            return (char) value.i(f);
+        }
+    }
+
+    static final class Retype extends Expr {
+        private final Expr value;
+
+        Retype(ValueType type, Expr value) {
+            super(type);
+            this.value = value;
+        }
+
+        @Override
+        int i(Frame f) {
+            return value.i(f);
+        }
+    }
+
+    static final class IntNeg extends Expr {
+        private final Expr value;
+
+        IntNeg(Expr value) {
+            super(ValueType.INT);
+            this.value = value;
+        }
+
+        @Override
+        int i(Frame f) {
+            return -value.i(f);
+        }
+    }
+
+    static final class DoubleNeg extends Expr {
+        private final Expr value;
+
+        DoubleNeg(Expr value) {
+            super(value.type);
+            this.value = value;
+        }
+
+        @Override
+        double d(Frame f) {
+            return -value.d(f);
+        }
+    }
+
+    static final class Not extends Expr {
+        private final Expr value;
+
+        Not(Expr value) {
+            super(ValueType.BOOLEAN);
+            this.value = value;
+        }
+
+        @Override
+        int i(Frame f) {
+            return value.test(f) ? 0 : 1;
+        }
+
+        @Override
+        boolean test(Frame f) {
+            return !value.test(f);
+        }
+    }
+
+    static final class IntArith extends Expr {
+        private final Operator op;
+        private final Expr left;
+        private final Expr right;
+
+        IntArith(Operator op, Expr left, Expr right) {
+            super(ValueType.INT);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int i(Frame f) {
+            int l = left.i(f);
+            int r = right.i(f);
+            switch (op) {
+                case ADD: return l + r;
+                case SUBTRACT: return l - r;
+                case MULTIPLY: return l * r;
+                default: return l / r;
+            }
+        }
+    }
+
+    static final class DoubleArith extends Expr {
+        private final Operator op;
+        private final Expr left;
+        private final Expr right;
+
+        DoubleArith(ValueType type, Operator op, Expr left, Expr right) {
+            super(type);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double d(Frame f) {
+            double l = left.d(f);
+            double r = right.d(f);
+            double v;
+            switch (op) {
+                case ADD: v = l + r; break;
+                case SUBTRACT: v = l - r; break;
+                case MULTIPLY: v = l * r; break;
+                default: v = l / r; break;
+            }
+            return type == ValueType.FLOAT ? (float) v : v;
+        }
+    }
+
+    static final class IntCompare extends Expr {
+        private final Operator op;
+        private final Expr left;
+        private final Expr right;
+
+        IntCompare(Operator op, Expr left, Expr right) {
+            super(ValueType.BOOLEAN);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int i(Frame f) {
+            return test(f) ? 1 : 0;
+        }
+
+        @Override
+        boolean test(Frame f) {
+            int l = left.i(f);
+            int r = right.i(f);
+            switch (op) {
+                case EQUAL: return l == r;
+                case NOT_EQUAL: return l != r;
+                case LESS: return l < r;
+                case LESS_EQUAL: return l <= r;
+                case GREATER: return l > r;
+                default: return l >= r;
+            }
+        }
+    }
+
+    static final class DoubleCompare extends Expr {
+        private final Operator op;
+        private final Expr left;
+        private final Expr right;
+
+        DoubleCompare(Operator op, Expr left, Expr right) {
+            super(ValueType.BOOLEAN);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int i(Frame f) {
+            return test(f) ? 1 : 0;
+        }
+
+        @Override
+        boolean test(Frame f) {
+            double l = left.d(f);
+            double r = right.d(f);
+            switch (op) {
+                case EQUAL: return l == r;
+                case NOT_EQUAL: return l != r;
+                case LESS: return l < r;
+                case LESS_EQUAL: return l <= r;
+                case GREATER: return l > r;
+                default: return l >= r;
+            }
+        }
+    }
+
+    static final class RefEquals extends Expr {
+        private final Expr left;
+        private final Expr right;
+        private final boolean equal;
+
+        RefEquals(Expr left, Expr right, boolean equal) {
+            super(ValueType.BOOLEAN);
+            this.left = left;
+            this.right = right;
+            this.equal = equal;
+        }
+
+        @Override
+        int i(Frame f) {
+            return test(f) ? 1 : 0;
+        }
+
+        @Override
+        boolean test(Frame f) {
+            return Objects.equals(left.o(f), right.o(f)) == equal;
+        }
+    }
+
+    static final class And extends Expr {
+        private final Expr left;
+        private final Expr right;
+
+        And(Expr left, Expr right) {
+            super(ValueType.BOOLEAN);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int i(Frame f) {
+            return test(f) ? 1 : 0;
+        }
+
+        @Override
+        boolean test(Frame f) {
+            return left.test(f) && right.test(f);
+        }
+    }
+
+    static final class Or extends Expr {
+        private final Expr left;
+        private final Expr right;
+
+        Or(Expr left, Expr right) {
+            super(ValueType.BOOLEAN);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        int i(Frame f) {
+            return test(f) ? 1 : 0;
+        }
+
+        @Override
+        boolean test(Frame f) {
+            return left.test(f) || right.test(f);
+        }
+    }
+
+    static final class Concat extends Expr {
+        private final Expr left;
+        private final Expr right;
+
+        Concat(Expr left, Expr right) {
+            super(ValueType.STRING);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object o(Frame f) {
+            return left.text(f) + right.text(f);
+        }
+    }
+}
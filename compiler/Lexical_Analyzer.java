@@ -3,11 +3,15 @@ import compiler.parser;
 import java.util.ArrayList;
 import java.util.regex.Pattern;
 import java.io.IOException;
-import java.io.FileReader;
-import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 final class Lexical_Analyzer {
-    public final String [] Keywords = {
+    public enum Mode { REGEX, TABLE }
+
+    static final String [] KEYWORD_TABLE = {
       //  int       float
         "tibuok", "lutaw",
      //    double   char      if    else
@@ -19,15 +23,22 @@ final class Lexical_Analyzer {
      //   import    sout            sin     String
         "angkat","imprenta_gawas","sulod","karhan"
     };
-    public class Token {
+    public final List<String> Keywords = List.of(KEYWORD_TABLE);  // read-only view; the table itself is shared with TokenKind
+    public static class Token {
         public String type;
         public String value;
+        public int offset = -1;  // source offset of the first char, -1 when unknown
 
         public Token(String type, String value) {
             this.type = type;
             this.value = value;
         }
 
+        public Token(String type, String value, int offset) {
+            this(type, value);
+            this.offset = offset;
+        }
+
         @Override
         public String toString() {
             return type + " :\t" + value;
@@ -35,16 +46,30 @@ final class Lexical_Analyzer {
     }
 
     
-    public final String Functuations = "; , () {} = == ! != <= >= + - / *";
+    static final String PUNCTUATION_CHARS = "; , () {} = == ! != <= >= + - / *";
+    public final String Functuations = PUNCTUATION_CHARS;
+    static final String COMPARISON_CHARS = "=!<>";
     public ArrayList<Token> tokens;
     public String code;
+    public Mode mode;
+    public ParallelCompiler parallel;  // null: compile() analyzes and generates on the calling thread
     
     public Lexical_Analyzer(String code){
+        this(code, Mode.REGEX);
+    }
+
+    public Lexical_Analyzer(String code, Mode mode){
         this.code = code;
+        this.mode = mode;
         this.tokens = new ArrayList<>();
     }
     
     public void tokenize() {
+        if (mode == Mode.TABLE) {
+            tokenizeTable();
+            return;
+        }
+
         StringBuilder token = new StringBuilder();
         boolean isString = false;
 
@@ -54,12 +79,12 @@ final class Lexical_Analyzer {
             if (currentChar == '"') {
                 if (isString) {
                     token.append(currentChar);
-                    addToken(token.toString());
+                    addToken(token.toString(), i + 1 - token.length());
                     token.setLength(0);
                     isString = false;
                 } else {
                     if (token.length() > 0) {
-                        addToken(token.toString());
+                        addToken(token.toString(), i - token.length());
                         token.setLength(0);
                     }
                     token.append(currentChar);
@@ -67,13 +92,18 @@ final class Lexical_Analyzer {
                 }
             } else if (Functuations.indexOf(currentChar) != -1 && !isString) {
                 if (token.length() > 0) {
-                    addToken(token.toString());
+                    addToken(token.toString(), i - token.length());
                     token.setLength(0);
                 }
-                addToken(String.valueOf(currentChar));
+                if (COMPARISON_CHARS.indexOf(currentChar) != -1 && i + 1 < code.length() && code.charAt(i + 1) == '=') {
+                    addToken(code.substring(i, i + 2), i);  // ==  !=  <=  >=
+                    i++;
+                } else {
+                    addToken(String.valueOf(currentChar), i);
+                }
             } else if (Character.isWhitespace(currentChar) && !isString) {
                 if (token.length() > 0) {
-                    addToken(token.toString());
+                    addToken(token.toString(), i - token.length());
                     token.setLength(0);
                 }
             } else {
@@ -82,11 +112,33 @@ final class Lexical_Analyzer {
         }
 
         if (token.length() > 0) {
-            addToken(token.toString());
+            addToken(token.toString(), code.length() - token.length());
         }
     }
     
-    private void addToken(String raw) {
+    // Table driven mode: tokens come out of TableLexer already classified.
+    private void tokenizeTable() {
+        TableLexer lexer = new TableLexer(code.toCharArray());
+        int kind;
+        while ((kind = lexer.next()) != TokenKind.EOF) {
+            tokens.add(new Token(TokenKind.TYPE[kind], lexer.text(), lexer.offset()));
+        }
+    }
+
+    // Pull mode: tokens are produced one at a time as the parser asks for them.
+    public TokenSource tokenStream() {
+        return new TableLexer(code.toCharArray());
+    }
+
+    // Compact alternative to tokens: kinds and offsets only, no Token objects.
+    public TokenBuffer tokenizeCompact() {
+        return TokenBuffer.lex(code.toCharArray());
+    }
+    
+    private void addToken(String raw, int offset) {
+        int lead = 0;  // trim() strips chars <= ' '; the token starts after them
+        while (lead < raw.length() && raw.charAt(lead) <= ' ') lead++;
+        offset += lead;
         raw = raw.trim();
         if (raw.isEmpty()) return;
 
@@ -105,14 +157,18 @@ final class Lexical_Analyzer {
             type = "STRING";
         } else if (isIdentifier(raw)) {
             type = "IDENTIFIER";
+            raw = Symbols.name(Symbols.intern(raw));  // every occurrence shares one String
         } else {
             type = "UNKNOWN";
         }
 
-        tokens.add(new Token(type, raw));
+        tokens.add(new Token(type, raw, offset));
     }
     
     public boolean isPunctuation(String token) {
+        if (token.length() == 2) {
+            return token.charAt(1) == '=' && COMPARISON_CHARS.indexOf(token.charAt(0)) != -1;
+        }
         return token.length() == 1 && Functuations.indexOf(token.charAt(0)) != -1;
     }
 
@@ -145,45 +201,126 @@ final class Lexical_Analyzer {
     }
 
     public void analyze(){
+        if (!Trace.enabled(Trace.Level.TRACE)) return;
         for(Token token : tokens){
-            System.out.println(token);
+            Trace.trace(token);
         }
     }
     
-    public void File_reader() {
-        StringBuilder codeBuilder = new StringBuilder();
+    // Traces each token as it is pulled.
+    private static TokenSource printing(TokenSource tokens) {
+        return new TokenSource() {
+            @Override
+            public int next() {
+                int kind = tokens.next();
+                if (kind != TokenKind.EOF) Trace.trace(new Token(TokenKind.TYPE[kind], tokens.text(), tokens.offset()));
+                return kind;
+            }
 
-        // 1️⃣ Read the source file
-        try (FileReader fr = new FileReader("src\\compiler\\proglang.txt");
-             BufferedReader br = new BufferedReader(fr)) {
+            @Override
+            public String text() {
+                return tokens.text();
+            }
 
-            String line;
-            while ((line = br.readLine()) != null) {
-                codeBuilder.append(line).append("\n");
+            @Override
+            public int offset() {
+                return tokens.offset();
             }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+            @Override
+            public int symbol() {
+                return tokens.symbol();
+            }
 
-        // 2️⃣ Store code
-        String code = codeBuilder.toString();
+            @Override
+            public CharSequence source() {
+                return tokens.source();
+            }
+        };
+    }
 
-        // 3️⃣ Lexical Analysis
-        Lexical_Analyzer lexer = new Lexical_Analyzer(code);
-        lexer.tokenize();
+    // the bundled sample program, relative to the repo root
+    static final Path SAMPLE = Path.of("compiler", "proglang.txt");
 
-        System.out.println("🔹 TOKENS GENERATED:");
-        lexer.analyze();  // Optional, shows tokens in console
+    public String File_reader() throws IOException {
+        return File_reader(SAMPLE);
+    }
+
+    public String File_reader(Path path) throws IOException {
+        // 1️⃣ Read + Lexical Analysis + 2️⃣ Parsing
+        boolean echo = Trace.enabled(Trace.Level.TRACE);  // tokens are only traced at --trace trace
+        if (echo) Trace.trace("🔹 TOKENS GENERATED:");
+        AST.Program program = parse(path, echo);
 
-        // 4️⃣ Parsing
-        parser Parser = new parser(lexer.tokens);
-        AST.Program program = Parser.parseProgram();
+        // 3️⃣ Optimization: fold constants, drop dead branches
+        Optimizer optimizer = new Optimizer();
+        program = optimizer.optimize(program);
+        if (Trace.enabled(Trace.Level.INFO)) Trace.info("🔹 OPTIMIZER: removed " + optimizer.removed + " nodes");
 
-        // 5️⃣ Code Generation (NEW)
+        // 4️⃣ Code Generation
         CodeGenerator generator = new CodeGenerator();
-        String output = generator.generate(program);
+        return generator.generate(program);
+    }
+
+    // The file is mapped and lexed as the parser pulls tokens; no token list is built.
+    public AST.Program parse(Path path, boolean echo) throws IOException {
+        try (MappedSource source = MappedSource.open(path)) {
+            TokenSource tokens = new TableLexer(source);
+            if (echo) tokens = printing(tokens);
+            parser Parser = new parser(tokens);
+            return Parser.parseProgram();
+        } catch (SyntaxError e) {
+            // the mapped source was only streamed; lines and columns come from a second read, on failure only
+            throw e.locate(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        }
+    }
+
+    // The File_reader phases run one after another and measured into stats:
+    // the file is read whole and lexed into a TokenBuffer before parsing
+    // (instead of being lexed as the parser pulls tokens), so each phase has
+    // its own time and allocation. The code is only generated when asked for.
+    public CompileCache.Entry compile(Path path, CompileStats stats, boolean generate) throws IOException {
+        stats.begin(CompileStats.Phase.READ);
+        byte[] bytes = Files.readAllBytes(path);
+        char[] source = new String(bytes, StandardCharsets.UTF_8).toCharArray();
+        stats.end(bytes.length);
+        return compile(source, stats, generate);
+    }
+
+    public CompileCache.Entry compile(char[] source, CompileStats stats, boolean generate) {
+        // 1️⃣ Lexical Analysis
+        stats.begin(CompileStats.Phase.LEX);
+        TokenBuffer tokens = TokenBuffer.lex(source);
+        stats.end(tokens.size());
 
-        
+        // 2️⃣ Parsing
+        stats.begin(CompileStats.Phase.PARSE);
+        AST.Program parsed = new parser(tokens).parseProgram();
+        stats.end(() -> Optimizer.count(parsed));  // counted after the clock stops
+        AST.Program program = parsed;
+
+        // 3️⃣ Semantic analysis (reported, not fatal)
+        stats.begin(CompileStats.Phase.SEMANTIC);
+        long workers = parallel != null ? parallel.workerAllocated() : -1;
+        List<String> errors = parallel != null ? parallel.check(program) : new SemanticAnalyzer().check(program);
+        if (workers >= 0) stats.addAllocated(parallel.workerAllocated() - workers);
+        stats.end(errors.size());
+
+        // 4️⃣ Optimization
+        stats.begin(CompileStats.Phase.OPTIMIZE);
+        Optimizer optimizer = new Optimizer();
+        program = optimizer.optimize(program);
+        stats.end(optimizer.removed);
+
+        // 5️⃣ Code Generation
+        String code = null;
+        if (generate) {
+            stats.begin(CompileStats.Phase.CODEGEN);
+            workers = parallel != null ? parallel.workerAllocated() : -1;
+            code = parallel != null ? parallel.generate(program) : new CodeGenerator().generate(program);
+            if (workers >= 0) stats.addAllocated(parallel.workerAllocated() - workers);
+            stats.end(code.length());
+        }
+        return new CompileCache.Entry(code, program, errors);
     }
 }
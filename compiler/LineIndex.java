@@ -0,0 +1,61 @@
+package compiler;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// Turns source offsets into 1-based lines and columns. The line starts are
+// only collected on the first lookup, in one scan of the source, and each
+// lookup after that is a binary search; nothing is counted while compiling.
+public final class LineIndex {
+    private final CharSequence source;
+    private int[] starts;  // offset of the first char of every line
+    private int lines;
+
+    public LineIndex(CharSequence source) {
+        this.source = source;
+    }
+
+    public LineIndex(char[] source) {
+        this(CharBuffer.wrap(source));
+    }
+
+    private void build() {
+        int[] found = new int[Math.max(16, source.length() / 32)];
+        int count = 0;
+        found[count++] = 0;
+        for (int i = 0, n = source.length(); i < n; i++) {
+            if (source.charAt(i) == '\n') {
+                if (count == found.length) found = Arrays.copyOf(found, count * 2);
+                found[count++] = i + 1;
+            }
+        }
+        starts = found;
+        lines = count;
+    }
+
+    public int line(int offset) {
+        if (starts == null) build();
+        int lo = 0;
+        int hi = lines - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= offset) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo + 1;
+    }
+
+    public int column(int offset) {
+        return offset - lineStart(line(offset)) + 1;
+    }
+
+    public int lineStart(int line) {
+        if (starts == null) build();
+        return starts[line - 1];
+    }
+
+    public int lineCount() {
+        if (starts == null) build();
+        return lines;
+    }
+}
@@ -0,0 +1,80 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reader over a memory-mapped UTF-8 source file. The file is mapped one window
+// at a time and decoded straight into the caller's buffer, so no copy of the
+// whole program ever exists on the heap.
+final class MappedSource extends Reader {
+    private static final long WINDOW = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean flushed;
+
+    private MappedSource(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    static MappedSource open(Path path) throws IOException {
+        return new MappedSource(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    private boolean lastWindow() {
+        return windowStart + window.limit() >= size;
+    }
+
+    // Maps the next window, starting at the first byte the decoder has not consumed.
+    private void map() throws IOException {
+        long from = window == null ? 0 : windowStart + window.position();
+        window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW, size - from));
+        windowStart = from;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (flushed) return -1;
+        if (window == null) map();
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.hasRemaining()) {
+            boolean last = lastWindow();
+            CoderResult result = decoder.decode(window, out, last);
+            if (result.isOverflow()) break;
+            if (result.isError()) result.throwException();
+            if (!last) {
+                map();
+                continue;
+            }
+            if (decoder.flush(out).isOverflow()) break;
+            flushed = true;
+            break;
+        }
+        int n = out.position() - off;
+        return n == 0 && flushed ? -1 : n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
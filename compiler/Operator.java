@@ -0,0 +1,50 @@
+package compiler;
+
+// The operators of the language. AST.Binary and AST.Unary resolve their
+// operator text to one of these once, when the node is built, so passes can
+// index tables by ordinal instead of comparing strings per node.
+public enum Operator {
+    ADD("+"), SUBTRACT("-"), MULTIPLY("*"), DIVIDE("/"),
+    LESS("<"), LESS_EQUAL("<="), GREATER(">"), GREATER_EQUAL(">="),
+    EQUAL("=="), NOT_EQUAL("!="),
+    AND("and"), OR("or"),
+    NOT("!");  // unary; "-" as a unary operator is SUBTRACT
+
+    public final String text;
+
+    Operator(String text) {
+        this.text = text;
+    }
+
+    boolean arithmetic() {
+        return ordinal() <= DIVIDE.ordinal();
+    }
+
+    boolean comparison() {
+        return ordinal() >= LESS.ordinal() && ordinal() <= NOT_EQUAL.ordinal();
+    }
+
+    boolean logical() {
+        return this == AND || this == OR;
+    }
+
+    // null for text that is not an operator (the node then fails type checking)
+    static Operator of(String text) {
+        switch (text) {
+            case "+": return ADD;
+            case "-": return SUBTRACT;
+            case "*": return MULTIPLY;
+            case "/": return DIVIDE;
+            case "<": return LESS;
+            case "<=": return LESS_EQUAL;
+            case ">": return GREATER;
+            case ">=": return GREATER_EQUAL;
+            case "==": return EQUAL;
+            case "!=": return NOT_EQUAL;
+            case "and": return AND;
+            case "or": return OR;
+            case "!": return NOT;
+            default: return null;
+        }
+    }
+}
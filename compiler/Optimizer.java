@@ -0,0 +1,429 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// AST pass run before code generation: folds operators whose operands are
+// literals and drops ug/edi branches, samtang loops and alang loops whose
+// condition folds to a constant. Folding follows the same Java semantics the
+// backends use at run time; anything that would fail there (division by zero,
+// mismatched operand types) is left in place so the backend reports it.
+public class Optimizer implements AST.StmtVisitor<AST.Stmt>, AST.ExprVisitor<AST.Expr> {
+    public int removed = 0;  // AST nodes removed by the last optimize call
+
+    public AST.Program optimize(AST.Program program) {
+        removed = 0;
+        List<AST.Stmt> statements = statements(program.statements);
+        return statements == program.statements ? program : new AST.Program(statements);
+    }
+
+    // =============== STATEMENTS ===============
+    // Returns the same list when nothing changed.
+    private List<AST.Stmt> statements(List<AST.Stmt> list) {
+        List<AST.Stmt> out = null;
+        for (int i = 0; i < list.size(); i++) {
+            AST.Stmt stmt = list.get(i);
+            AST.Stmt folded = stmt(stmt);
+            if (folded != stmt && out == null) out = new ArrayList<>(list.subList(0, i));
+            if (out != null && folded != null) out.add(folded);
+        }
+        return out == null ? list : out;
+    }
+
+    // Returns null when the statement can be dropped entirely.
+    private AST.Stmt stmt(AST.Stmt stmt) {
+        return AST.visit(stmt, this);
+    }
+
+    @Override
+    public AST.Stmt visitVarDecl(AST.VarDecl v) {
+        if (v.initializer == null) return v;
+        AST.Expr init = expr(v.initializer);
+        return init == v.initializer ? v : from(v, new AST.VarDecl(v.type, v.symbol, init));
+    }
+
+    @Override
+    public AST.Stmt visitPrint(AST.Print p) {
+        AST.Expr value = expr(p.expression);
+        return value == p.expression ? p : from(p, new AST.Print(value));
+    }
+
+    @Override
+    public AST.Stmt visitExpressionStmt(AST.ExpressionStmt e) {
+        AST.Expr value = expr(e.expression);
+        if (value instanceof AST.Literal) {
+            removed += 2;
+            return null;
+        }
+        return value == e.expression ? e : from(e, new AST.ExpressionStmt(value));
+    }
+
+    @Override
+    public AST.Stmt visitBlock(AST.Block b) {
+        List<AST.Stmt> body = statements(b.statements);
+        return body == b.statements ? b : from(b, new AST.Block(body));
+    }
+
+    @Override
+    public AST.Stmt visitIfStmt(AST.IfStmt i) {
+        AST.Expr cond = expr(i.condition);
+        if (cond instanceof AST.Literal l && l.value instanceof Boolean taken) {
+            // keep the taken branch; it is a block, so its scope is unchanged
+            AST.Stmt kept = taken ? i.thenBranch : i.elseBranch;
+            AST.Stmt dropped = taken ? i.elseBranch : i.thenBranch;
+            removed += 2 + count(dropped);
+            return kept == null ? null : stmt(kept);
+        }
+        AST.Stmt then = body(i.thenBranch);
+        AST.Stmt otherwise = i.elseBranch == null ? null : body(i.elseBranch);
+        if (cond == i.condition && then == i.thenBranch && otherwise == i.elseBranch) return i;
+        return from(i, new AST.IfStmt(cond, then, otherwise));
+    }
+
+    @Override
+    public AST.Stmt visitWhileStmt(AST.WhileStmt w) {
+        AST.Expr cond = expr(w.condition);
+        if (isFalse(cond)) {
+            removed += 2 + count(w.body);
+            return null;
+        }
+        AST.Stmt body = body(w.body);
+        if (cond == w.condition && body == w.body) return w;
+        return from(w, new AST.WhileStmt(cond, body));
+    }
+
+    @Override
+    public AST.Stmt visitForStmt(AST.ForStmt f) {
+        AST.Stmt init = f.initializer == null ? null : stmt(f.initializer);
+        AST.Expr cond = f.condition == null ? null : expr(f.condition);
+        if (isFalse(cond)) {
+            // only the initializer runs, still in its own scope
+            removed += 2 + count(f.increment) + count(f.body);
+            if (init == null) return null;
+            removed--;
+            return from(f, new AST.Block(List.of(init)));
+        }
+        AST.Expr step = f.increment == null ? null : expr(f.increment);
+        if (step instanceof AST.Literal) {
+            removed += 1;
+            step = null;
+        }
+        AST.Stmt body = body(f.body);
+        if (init == f.initializer && cond == f.condition && step == f.increment && body == f.body) return f;
+        return from(f, new AST.ForStmt(init, cond, step, body));
+    }
+
+    // loop and branch bodies must stay statements even when emptied
+    private AST.Stmt body(AST.Stmt stmt) {
+        AST.Stmt folded = stmt(stmt);
+        if (folded != null) return folded;
+        removed--;
+        return from(stmt, new AST.Block(List.of()));
+    }
+
+    // a rebuilt node keeps the source position of the node it replaces
+    private static <N extends AST.Node> N from(Object origin, N node) {
+        if (origin instanceof AST.Node o) node.offset = o.offset;
+        return node;
+    }
+
+    private static boolean isFalse(AST.Expr expr) {
+        return expr instanceof AST.Literal l && Boolean.FALSE.equals(l.value);
+    }
+
+    // =============== EXPRESSIONS ===============
+    private AST.Expr expr(AST.Expr expr) {
+        return AST.visit(expr, this);
+    }
+
+    @Override
+    public AST.Expr visitLiteral(AST.Literal l) {
+        return l;
+    }
+
+    @Override
+    public AST.Expr visitVariable(AST.Variable v) {
+        return v;
+    }
+
+    @Override
+    public AST.Expr visitGrouping(AST.Grouping g) {
+        AST.Expr inner = expr(g.expression);
+        if (inner instanceof AST.Literal || inner instanceof AST.Grouping) {
+            removed++;
+            return inner;
+        }
+        return inner == g.expression ? g : from(g, new AST.Grouping(inner));
+    }
+
+    @Override
+    public AST.Expr visitUnary(AST.Unary u) {
+        AST.Expr right = expr(u.right);
+        if (right instanceof AST.Literal l) {
+            Object value = unary(u.op, l.value);
+            if (value != null) {
+                removed++;
+                return from(u, new AST.Literal(value));
+            }
+        }
+        return right == u.right ? u : from(u, new AST.Unary(u.operator, right));
+    }
+
+    @Override
+    public AST.Expr visitBinary(AST.Binary b) {
+        AST.Expr left = expr(b.left);
+        AST.Expr right = expr(b.right);
+        AST.Expr folded = logic(b.op, left, right);
+        if (folded != null) return folded;
+        if (left instanceof AST.Literal l && right instanceof AST.Literal r) {
+            Object value = binary(l.value, b.op, r.value);
+            if (value != null) {
+                removed += 2;
+                return from(b, new AST.Literal(value));
+            }
+        }
+        return left == b.left && right == b.right ? b : from(b, new AST.Binary(left, b.operator, right));
+    }
+
+    @Override
+    public AST.Expr visitAssignment(AST.Assignment a) {
+        AST.Expr value = expr(a.value);
+        return value == a.value ? a : from(a, new AST.Assignment(a.symbol, value));
+    }
+
+    // and / or with a literal left side short-circuit at compile time
+    private AST.Expr logic(Operator op, AST.Expr left, AST.Expr right) {
+        boolean and = op == Operator.AND;
+        if (!and && op != Operator.OR) return null;
+        if (!(left instanceof AST.Literal l) || !(l.value instanceof Boolean value)) return null;
+        if (value != and) {
+            // false and x / true or x: x is never evaluated
+            removed += 1 + count(right);
+            return left;
+        }
+        // true and x / false or x is x, as long as x is known to be a boolean
+        if (!isBoolean(right)) return null;
+        removed += 2;
+        return right;
+    }
+
+    private static boolean isBoolean(AST.Expr expr) {
+        return AST.visit(expr, IS_BOOLEAN);
+    }
+
+    // Whether an expression is known to be a boolean without type checking it.
+    private static final AST.ExprVisitor<Boolean> IS_BOOLEAN = new AST.ExprVisitor<>() {
+        @Override
+        public Boolean visitLiteral(AST.Literal l) {
+            return l.value instanceof Boolean;
+        }
+
+        @Override
+        public Boolean visitVariable(AST.Variable v) {
+            return false;
+        }
+
+        @Override
+        public Boolean visitBinary(AST.Binary b) {
+            return b.op != null && (b.op.comparison() || b.op.logical());
+        }
+
+        @Override
+        public Boolean visitUnary(AST.Unary u) {
+            return u.op == Operator.NOT;
+        }
+
+        @Override
+        public Boolean visitGrouping(AST.Grouping g) {
+            return isBoolean(g.expression);
+        }
+
+        @Override
+        public Boolean visitAssignment(AST.Assignment a) {
+            return false;
+        }
+    };
+
+    private static Object unary(Operator op, Object value) {
+        if (op == null) return null;
+        if (op == Operator.NOT) return value instanceof Boolean b ? !b : null;
+        if (value instanceof Integer i) return -i;
+        if (value instanceof Double d) return -d;
+        return null;
+    }
+
+    // Value of a binary operator on two literals, or null when it is not folded.
+    private static Object binary(Object left, Operator op, Object right) {
+        if (op == null) return null;
+        if (op == Operator.ADD && (left instanceof String || right instanceof String)) {
+            return String.valueOf(left) + right;
+        }
+        if (left instanceof Integer l && right instanceof Integer r) {
+            switch (op) {
+                case ADD: return l + r;
+                case SUBTRACT: return l - r;
+                case MULTIPLY: return l * r;
+                case DIVIDE: return r == 0 ? null : l / r;
+                case EQUAL: return l.intValue() == r.intValue();
+                case NOT_EQUAL: return l.intValue() != r.intValue();
+                case LESS: return l < r;
+                case LESS_EQUAL: return l <= r;
+                case GREATER: return l > r;
+                case GREATER_EQUAL: return l >= r;
+                default: return null;
+            }
+        }
+        if (left instanceof Number && right instanceof Number) {
+            double l = ((Number) left).doubleValue();
+            double r = ((Number) right).doubleValue();
+            switch (op) {
+                case ADD: return l + r;
+                case SUBTRACT: return l - r;
+                case MULTIPLY: return l * r;
+                case DIVIDE: return l / r;
+                case EQUAL: return l == r;
+                case NOT_EQUAL: return l != r;
+                case LESS: return l < r;
+                case LESS_EQUAL: return l <= r;
+                case GREATER: return l > r;
+                case GREATER_EQUAL: return l >= r;
+                default: return null;
+            }
+        }
+        boolean sameKind = left instanceof Boolean && right instanceof Boolean
+                || left instanceof String && right instanceof String;
+        if (sameKind && op == Operator.EQUAL) return Objects.equals(left, right);
+        if (sameKind && op == Operator.NOT_EQUAL) return !Objects.equals(left, right);
+        return null;
+    }
+
+    // =============== COUNTING ===============
+    static int count(AST.Program program) {
+        Counter counter = new Counter();
+        counter.nodes = 1;
+        for (AST.Stmt s : program.statements) AST.visit(s, counter);
+        return counter.nodes;
+    }
+
+    static int count(AST.Stmt stmt) {
+        Counter counter = new Counter();
+        counter.add(stmt);
+        return counter.nodes;
+    }
+
+    static int count(AST.Expr expr) {
+        Counter counter = new Counter();
+        counter.add(expr);
+        return counter.nodes;
+    }
+
+    // Counts the nodes of a subtree.
+    private static final class Counter implements AST.StmtVisitor<Void>, AST.ExprVisitor<Void> {
+        int nodes;
+
+        void add(AST.Stmt stmt) {
+            if (stmt != null) AST.visit(stmt, this);
+        }
+
+        void add(AST.Expr expr) {
+            if (expr != null) AST.visit(expr, this);
+        }
+
+        @Override
+        public Void visitVarDecl(AST.VarDecl v) {
+            nodes++;
+            add(v.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitPrint(AST.Print p) {
+            nodes++;
+            add(p.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(AST.ExpressionStmt e) {
+            nodes++;
+            add(e.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(AST.Block b) {
+            nodes++;
+            for (AST.Stmt s : b.statements) add(s);
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(AST.IfStmt i) {
+            nodes++;
+            add(i.condition);
+            add(i.thenBranch);
+            add(i.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(AST.WhileStmt w) {
+            nodes++;
+            add(w.condition);
+            add(w.body);
+            return null;
+        }
+
+        @Override
+        public Void visitForStmt(AST.ForStmt f) {
+            nodes++;
+            add(f.initializer);
+            add(f.condition);
+            add(f.increment);
+            add(f.body);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(AST.Literal l) {
+            nodes++;
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(AST.Variable v) {
+            nodes++;
+            return null;
+        }
+
+        @Override
+        public Void visitBinary(AST.Binary b) {
+            nodes++;
+            add(b.left);
+            add(b.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnary(AST.Unary u) {
+            nodes++;
+            add(u.right);
+            return null;
+        }
+
+        @Override
+        public Void visitGrouping(AST.Grouping g) {
+            nodes++;
+            add(g.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(AST.Assignment a) {
+            nodes++;
+            add(a.value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+// Semantic analysis and code generation of one large program on a
+// work-stealing ForkJoinPool. The top-level statements are cut into
+// contiguous slices. A cheap sequential pre-pass finds what each slice needs
+// to know about the statements before it (the top-level declarations for the
+// analyzer, the variable values for the generator), then the slices are
+// worked on in parallel, each into its own error list or output buffer, and
+// the pieces are joined in statement order. The result is exactly what the
+// sequential SemanticAnalyzer and CodeGenerator produce.
+public class ParallelCompiler {
+    private static final int SLICES_PER_THREAD = 4;
+    private static final int MIN_SLICE = 16;  // statements; smaller programs are not split
+
+    private final ForkJoinPool pool;
+    private final int threads;
+    // bytes allocated by slices run on the pool's workers; slices the calling
+    // thread runs itself are already in its own counter
+    private final LongAdder allocated = new LongAdder();
+
+    public ParallelCompiler(int threads) {
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    // Slice boundaries: slice k covers statements [bounds[k], bounds[k + 1]).
+    private int[] slices(int statements) {
+        int count = threads == 1 ? 1 : Math.max(1, Math.min(threads * SLICES_PER_THREAD, statements / MIN_SLICE));
+        int[] bounds = new int[count + 1];
+        for (int k = 0; k <= count; k++) bounds[k] = (int) ((long) statements * k / count);
+        return bounds;
+    }
+
+    // =============== SEMANTIC ANALYSIS ===============
+    public List<String> check(AST.Program program) {
+        List<AST.Stmt> statements = program.statements;
+        int[] bounds = slices(statements.size());
+        if (bounds.length == 2) return new SemanticAnalyzer().check(program);
+
+        // 1️⃣ Pre-pass: where every top-level name is first declared
+        SymbolTable.Global[] globals = SemanticAnalyzer.declarations(statements);
+
+        // 2️⃣ Slices in parallel, 3️⃣ errors joined in order
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<String>[] errors = new List[bounds.length - 1];
+        run(errors.length, k -> errors[k] = new SemanticAnalyzer().check(statements, bounds[k], bounds[k + 1], globals));
+        List<String> all = new ArrayList<>();
+        for (List<String> part : errors) all.addAll(part);
+        return all;
+    }
+
+    // =============== CODE GENERATION ===============
+    public String generate(AST.Program program) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            generate(program, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // a StringBuilder never throws
+        }
+        return sb.toString();
+    }
+
+    public void generate(AST.Program program, Appendable sink) throws IOException {
+        List<AST.Stmt> statements = program.statements;
+        int[] bounds = slices(statements.size());
+        if (bounds.length == 2) {
+            new CodeGenerator().generate(program, sink);
+            return;
+        }
+
+        // 1️⃣ Pre-pass: the variable values each slice starts from, found
+        //    without spelling out any code
+        List<Object[]> starts = new ArrayList<>();
+        CodeGenerator values = new CodeGenerator();
+        for (int k = 0; k < bounds.length - 1; k++) {
+            starts.add(values.variables());
+            if (k < bounds.length - 2) {
+                for (int i = bounds[k]; i < bounds[k + 1]; i++) values.skip(statements.get(i));
+            }
+        }
+
+        // 2️⃣ Slices in parallel, 3️⃣ output joined in order
+        StringBuilder[] parts = new StringBuilder[bounds.length - 1];
+        run(parts.length, k -> {
+            StringBuilder part = new StringBuilder();
+            try {
+                new CodeGenerator().generate(statements, bounds[k], bounds[k + 1], starts.get(k), part);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            parts[k] = part;
+        });
+        for (StringBuilder part : parts) sink.append(part);
+    }
+
+    // Running total of worker allocation; CompileStats takes the difference
+    // around a phase. -1 when the JVM cannot measure it.
+    public long workerAllocated() {
+        return CompileStats.allocated() < 0 ? -1 : allocated.sum();
+    }
+
+    // =============== FORK/JOIN ===============
+    private void run(int slices, IntConsumer body) {
+        pool.invoke(new Task(this, body, 0, slices));
+    }
+
+    // Splits the slice range in halves until one slice is left, so idle
+    // workers can steal the other half of any range still waiting.
+    private static final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelCompiler owner;
+        private final IntConsumer body;
+        private final int from, to;
+
+        Task(ParallelCompiler owner, IntConsumer body, int from, int to) {
+            this.owner = owner;
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                boolean worker = Thread.currentThread() instanceof ForkJoinWorkerThread w && w.getPool() == owner.pool;
+                long start = worker ? CompileStats.allocated() : -1;
+                body.accept(from);
+                if (start >= 0) owner.allocated.add(CompileStats.allocated() - start);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Task(owner, body, from, mid), new Task(owner, body, mid, to));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package compiler;
+
+import java.lang.reflect.InvocationTargetException;
+
+// Loads classes produced by BytecodeGenerator straight from memory.
+final class ProgramClassLoader extends ClassLoader {
+
+    ProgramClassLoader() {
+        super(ProgramClassLoader.class.getClassLoader());
+    }
+
+    Class<?> define(String className, byte[] bytes) {
+        return defineClass(className, bytes, 0, bytes.length);
+    }
+
+    // Defines the class and runs its main method.
+    void run(String className, byte[] bytes) {
+        try {
+            define(className, bytes).getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException r) throw r;
+            if (cause instanceof Error err) throw err;
+            throw new RuntimeException(cause);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
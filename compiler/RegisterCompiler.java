@@ -0,0 +1,638 @@
+package compiler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static compiler.RegisterVM.*;
+
+// Compiles a program into RegisterVM code. Every variable owns a register for
+// its whole scope and expressions write straight into their destination, so
+// `x = x + 1` is a single IADD. Temporaries are taken above the variables and
+// released after each statement; registers of a closed scope are reused.
+public class RegisterCompiler implements AST.StmtVisitor<RegisterCompiler.Reg>, AST.ExprVisitor<RegisterCompiler.Reg> {
+    private static final int MAX_OPERAND = 0xFFFFFF;
+
+    static final class Reg {
+        final ValueType type;
+        final int index;
+
+        Reg(ValueType type, int index) {
+            this.type = type;
+            this.index = index;
+        }
+    }
+
+    private static final class Label {
+        private int position = -1;
+        private final List<Integer> uses = new ArrayList<>();
+    }
+
+    private int[] code = new int[256];
+    private int size;
+    private final List<Label> labels = new ArrayList<>();
+
+    private final List<Double> numbers = new ArrayList<>();
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> pool = new HashMap<>();
+
+    private final Deque<Map<String, Reg>> scopes = new ArrayDeque<>();
+    private int nextInt, nextDouble, nextRef;
+    private int maxInts, maxDoubles, maxRefs;
+    private Reg target;  // dst of the expr() call being visited
+    private final Types types = new Types();
+
+    public RegisterVM.Program compile(AST.Program program) {
+        scopes.push(new HashMap<>());
+        for (AST.Stmt stmt : program.statements) statement(stmt);
+        emit(HALT, 0);
+        patchJumps();
+
+        double[] nums = new double[numbers.size()];
+        for (int i = 0; i < nums.length; i++) nums[i] = numbers.get(i);
+        return new RegisterVM.Program(Arrays.copyOf(code, size), nums, constants.toArray(),
+                maxInts, maxDoubles, maxRefs);
+    }
+
+    // =============== STATEMENTS ===============
+    private void statement(AST.Stmt stmt) {
+        int ints = nextInt, doubles = nextDouble, refs = nextRef;
+        Reg declared = AST.visit(stmt, this);
+
+        // temporaries and inner scopes end with the statement; a declared
+        // variable keeps its register
+        nextInt = ints;
+        nextDouble = doubles;
+        nextRef = refs;
+        if (declared != null) {
+            switch (file(declared.type)) {
+                case 1: nextDouble = declared.index + 1; break;
+                case 2: nextRef = declared.index + 1; break;
+                default: nextInt = declared.index + 1; break;
+            }
+        }
+    }
+
+    // Statement visitors return the register of a declared variable, null otherwise.
+    @Override
+    public Reg visitVarDecl(AST.VarDecl v) {
+        ValueType type = ValueType.declared(v.type);
+        Map<String, Reg> scope = scopes.peek();
+        if (scope.containsKey(v.name)) throw new RuntimeException("Variable '" + v.name + "' already declared.");
+        // the register is claimed first but the name only becomes visible after the initializer
+        Reg reg = allocate(type);
+        if (v.initializer != null) value(v.initializer, type, reg);
+        else defaultValue(reg);
+        scope.put(v.name, reg);
+        return reg;
+    }
+
+    @Override
+    public Reg visitPrint(AST.Print p) {
+        emit(PRINT, text(expr(p.expression, null)).index);
+        return null;
+    }
+
+    @Override
+    public Reg visitExpressionStmt(AST.ExpressionStmt e) {
+        expr(e.expression, null);
+        return null;
+    }
+
+    @Override
+    public Reg visitBlock(AST.Block b) {
+        enter();
+        for (AST.Stmt s : b.statements) statement(s);
+        scopes.pop();
+        return null;
+    }
+
+    @Override
+    public Reg visitIfStmt(AST.IfStmt i) {
+        Label otherwise = label();
+        jumpIf(i.condition, false, otherwise);
+        statement(i.thenBranch);
+        if (i.elseBranch != null) {
+            Label end = label();
+            jump(end);
+            bind(otherwise);
+            statement(i.elseBranch);
+            bind(end);
+        } else {
+            bind(otherwise);
+        }
+        return null;
+    }
+
+    @Override
+    public Reg visitWhileStmt(AST.WhileStmt w) {
+        // condition at the bottom: one jump per iteration
+        Label body = label();
+        Label test = label();
+        jump(test);
+        bind(body);
+        statement(w.body);
+        bind(test);
+        jumpIf(w.condition, true, body);
+        return null;
+    }
+
+    @Override
+    public Reg visitForStmt(AST.ForStmt f) {
+        enter();
+        if (f.initializer != null) statement(f.initializer);
+        Label body = label();
+        Label test = label();
+        jump(test);
+        bind(body);
+        statement(f.body);
+        if (f.increment != null) expr(f.increment, null);
+        bind(test);
+        if (f.condition != null) jumpIf(f.condition, true, body);
+        else jump(body);
+        scopes.pop();
+        return null;
+    }
+
+    private void enter() {
+        scopes.push(new HashMap<>());
+    }
+
+    // =============== EXPRESSIONS ===============
+    // Computes expr converted to the given type, into dst when one is given.
+    private Reg value(AST.Expr expr, ValueType type, Reg dst) {
+        if (typeOf(expr) == type) return expr(expr, dst);
+        return convert(expr(expr, null), type, dst);
+    }
+
+    // Computes expr into dst, or into any register when dst is null; plain
+    // variable reads return the variable's own register.
+    private Reg expr(AST.Expr expr, Reg dst) {
+        target = dst;
+        return AST.visit(expr, this);
+    }
+
+    // Expression visitors take their dst from target, read before anything else
+    // is visited.
+    @Override
+    public Reg visitLiteral(AST.Literal l) {
+        Reg dst = target;
+        ValueType type = ValueType.ofLiteral(l.value);
+        Reg reg = dst != null ? dst : temp(type);
+        switch (type) {
+            case INT: emit(ICONST, reg.index, (Integer) l.value); break;
+            case BOOLEAN: emit(ICONST, reg.index, (Boolean) l.value ? 1 : 0); break;
+            case DOUBLE: emit(DCONST, reg.index, number((Double) l.value)); break;
+            default: emit(RCONST, reg.index, constant(l.value)); break;
+        }
+        return reg;
+    }
+
+    @Override
+    public Reg visitVariable(AST.Variable v) {
+        return move(lookup(v.name), target);
+    }
+
+    @Override
+    public Reg visitAssignment(AST.Assignment a) {
+        Reg dst = target;
+        Reg variable = lookup(a.name);
+        value(a.value, variable.type, variable);
+        return move(variable, dst);
+    }
+
+    @Override
+    public Reg visitGrouping(AST.Grouping g) {
+        return expr(g.expression, target);
+    }
+
+    @Override
+    public Reg visitUnary(AST.Unary u) {
+        Reg dst = target;
+        if (u.op == Operator.NOT) {
+            Reg right = expr(u.right, null);
+            if (right.type != ValueType.BOOLEAN) throw new RuntimeException("Operator ! needs a BOOLEAN, found " + right.type);
+            Reg reg = dst != null ? dst : temp(ValueType.BOOLEAN);
+            emit(NOT, reg.index, right.index);
+            return reg;
+        }
+        Reg right = expr(u.right, null);
+        if (!right.type.numeric()) throw new RuntimeException("Operator - needs a number, found " + right.type);
+        ValueType type = right.type == ValueType.CHAR ? ValueType.INT : right.type;
+        Reg reg = dst != null ? dst : temp(type);
+        emit(type == ValueType.INT ? INEG : DNEG, reg.index, right.index);
+        return reg;
+    }
+
+    @Override
+    public Reg visitBinary(AST.Binary b) {
+        Reg dst = target;
+        switch (b.op) {
+            case ADD:
+                if (typeOf(b.left) == ValueType.STRING || typeOf(b.right) == ValueType.STRING) {
+                    Reg left = text(operand(b.left, null, b.right));
+                    Reg right = text(expr(b.right, null));
+                    Reg reg = dst != null ? dst : temp(ValueType.STRING);
+                    emit(CONCAT, reg.index, left.index, right.index);
+                    return reg;
+                }
+                return arithmetic(b, IADD, FADD, DADD, dst);
+            case SUBTRACT:
+                return arithmetic(b, ISUB, FSUB, DSUB, dst);
+            case MULTIPLY:
+                return arithmetic(b, IMUL, FMUL, DMUL, dst);
+            case DIVIDE:
+                return arithmetic(b, IDIV, FDIV, DDIV, dst);
+            case EQUAL: case NOT_EQUAL: case LESS: case LESS_EQUAL: case GREATER: case GREATER_EQUAL:
+                return compare(b, dst);
+            case AND: case OR: {
+                // materialize the short-circuit jumps as 0 / 1
+                Reg reg = dst != null ? dst : temp(ValueType.BOOLEAN);
+                Label no = label();
+                Label end = label();
+                jumpIf(b, false, no);
+                emit(ICONST, reg.index, 1);
+                jump(end);
+                bind(no);
+                emit(ICONST, reg.index, 0);
+                bind(end);
+                return reg;
+            }
+            default:
+                throw new RuntimeException("Unsupported operator: " + b.op.text);
+        }
+    }
+
+    private Reg arithmetic(AST.Binary b, int intOp, int floatOp, int doubleOp, Reg dst) {
+        ValueType type = ValueType.promote(typeOf(b.left), typeOf(b.right), b.op);
+        Reg left = operand(b.left, type, b.right);
+        Reg right = value(b.right, type, null);
+        Reg reg = dst != null ? dst : temp(type);
+        int op = type == ValueType.DOUBLE ? doubleOp : type == ValueType.FLOAT ? floatOp : intOp;
+        emit(op, reg.index, left.index, right.index);
+        return reg;
+    }
+
+    // Left operand of a binary operator. If the right side assigns a variable,
+    // the left value is copied first so it is read before the assignment.
+    private Reg operand(AST.Expr left, ValueType type, AST.Expr right) {
+        ValueType natural = typeOf(left);
+        ValueType want = type != null ? type : natural;
+        Reg dst = assigns(right) ? temp(want == ValueType.CHAR ? ValueType.INT : want) : null;
+        return type != null ? value(left, type, dst) : expr(left, dst);
+    }
+
+    private Reg compare(AST.Binary b, Reg dst) {
+        Reg reg = dst != null ? dst : temp(ValueType.BOOLEAN);
+        Reg[] operands = comparands(b);
+        Operator op = b.op;
+        boolean swap = op == Operator.GREATER || op == Operator.GREATER_EQUAL;
+        Reg left = swap ? operands[1] : operands[0];
+        Reg right = swap ? operands[0] : operands[1];
+        int base = operands[0].type == ValueType.STRING ? REQ - 2
+                : operands[0].type == ValueType.FLOAT || operands[0].type == ValueType.DOUBLE ? DLT : ILT;
+        int offset;
+        switch (op) {
+            case LESS: case GREATER: offset = 0; break;
+            case LESS_EQUAL: case GREATER_EQUAL: offset = 1; break;
+            case EQUAL: offset = 2; break;
+            default: offset = 3; break;
+        }
+        emit(base + offset, reg.index, left.index, right.index);
+        return reg;
+    }
+
+    // Both sides of a comparison, checked and converted to a common type.
+    private Reg[] comparands(AST.Binary b) {
+        ValueType left = typeOf(b.left);
+        ValueType right = typeOf(b.right);
+        boolean equality = b.op == Operator.EQUAL || b.op == Operator.NOT_EQUAL;
+        ValueType type;
+        if (left == ValueType.STRING || right == ValueType.STRING
+                || left == ValueType.BOOLEAN || right == ValueType.BOOLEAN) {
+            if (!equality || left != right) throw new RuntimeException("Cannot compare " + left + " " + b.op.text + " " + right);
+            type = left;
+        } else {
+            type = ValueType.promote(left, right, b.op);
+        }
+        Reg l = operand(b.left, type, b.right);
+        Reg r = value(b.right, type, null);
+        return new Reg[] {l, r};
+    }
+
+    private Reg text(Reg value) {
+        int op;
+        switch (value.type) {
+            case STRING: return value;
+            case INT: op = ITOS; break;
+            case CHAR: op = CTOS; break;
+            case BOOLEAN: op = BTOS; break;
+            case FLOAT: op = FTOS; break;
+            default: op = DTOS; break;
+        }
+        Reg reg = temp(ValueType.STRING);
+        emit(op, reg.index, value.index);
+        return reg;
+    }
+
+    private Reg convert(Reg value, ValueType to, Reg dst) {
+        ValueType from = value.type;
+        if (from == to) return move(value, dst);
+        if (!ValueType.assignable(from, to)) throw new RuntimeException("Cannot convert " + from + " to " + to);
+        // CHAR already sits in an int register
+        if (from == ValueType.CHAR && to == ValueType.INT) return move(new Reg(to, value.index), dst);
+        Reg reg = dst != null ? dst : temp(to);
+        int op;
+        if (to == ValueType.CHAR) op = I2C;
+        else if (to == ValueType.DOUBLE) op = from == ValueType.FLOAT ? DMOV : I2D;
+        else op = from == ValueType.DOUBLE ? D2F : I2F;
+        emit(op, reg.index, value.index);
+        return reg;
+    }
+
+    private Reg move(Reg value, Reg dst) {
+        if (dst == null || dst.index == value.index && file(dst.type) == file(value.type)) return value;
+        switch (file(value.type)) {
+            case 1: emit(DMOV, dst.index, value.index); break;
+            case 2: emit(RMOV, dst.index, value.index); break;
+            default: emit(IMOV, dst.index, value.index); break;
+        }
+        return dst;
+    }
+
+    private void defaultValue(Reg reg) {
+        switch (file(reg.type)) {
+            case 1: emit(DCONST, reg.index, number(0.0)); break;
+            case 2: emit(RCONST, reg.index, constant(null)); break;
+            default: emit(ICONST, reg.index, 0); break;
+        }
+    }
+
+    // =============== CONDITIONS ===============
+    // Emits a jump to target taken when cond evaluates to `when`. Integer
+    // comparisons become one fused compare-and-branch instruction.
+    private void jumpIf(AST.Expr cond, boolean when, Label target) {
+        if (cond instanceof AST.Grouping g) {
+            jumpIf(g.expression, when, target);
+            return;
+        }
+        if (cond instanceof AST.Unary u && u.op == Operator.NOT && typeOf(u.right) == ValueType.BOOLEAN) {
+            jumpIf(u.right, !when, target);
+            return;
+        }
+        if (cond instanceof AST.Binary b) {
+            boolean and = b.op == Operator.AND;
+            if (and || b.op == Operator.OR) {
+                if (and != when) {
+                    // and/false, or/true: either side decides
+                    jumpIf(b.left, when, target);
+                    jumpIf(b.right, when, target);
+                } else {
+                    Label skip = label();
+                    jumpIf(b.left, !when, skip);
+                    jumpIf(b.right, when, target);
+                    bind(skip);
+                }
+                return;
+            }
+            if (b.op.comparison() && intComparison(b)) {
+                Reg[] operands = comparands(b);
+                Operator op = when ? b.op : inverse(b.op);
+                switch (op) {
+                    case EQUAL: branch(JIEQ, operands[0], operands[1], target); break;
+                    case NOT_EQUAL: branch(JINE, operands[0], operands[1], target); break;
+                    case LESS: branch(JILT, operands[0], operands[1], target); break;
+                    case LESS_EQUAL: branch(JILE, operands[0], operands[1], target); break;
+                    case GREATER: branch(JILT, operands[1], operands[0], target); break;
+                    default: branch(JILE, operands[1], operands[0], target); break;
+                }
+                return;
+            }
+        }
+        Reg value = expr(cond, null);
+        if (value.type != ValueType.BOOLEAN) throw new RuntimeException("Condition must be BOOLEAN, found " + value.type);
+        emit(when ? JT : JF, value.index, 0);
+        use(target);
+    }
+
+    private boolean intComparison(AST.Binary b) {
+        ValueType left = typeOf(b.left);
+        ValueType right = typeOf(b.right);
+        boolean ints = (left == ValueType.INT || left == ValueType.CHAR) && (right == ValueType.INT || right == ValueType.CHAR);
+        boolean bools = left == ValueType.BOOLEAN && right == ValueType.BOOLEAN;
+        return ints || bools && (b.op == Operator.EQUAL || b.op == Operator.NOT_EQUAL);
+    }
+
+    private static Operator inverse(Operator op) {
+        switch (op) {
+            case EQUAL: return Operator.NOT_EQUAL;
+            case NOT_EQUAL: return Operator.EQUAL;
+            case LESS: return Operator.GREATER_EQUAL;
+            case LESS_EQUAL: return Operator.GREATER;
+            case GREATER: return Operator.LESS_EQUAL;
+            default: return Operator.LESS;
+        }
+    }
+
+    // whether evaluating expr can store into a variable
+    private static boolean assigns(AST.Expr expr) {
+        return AST.visit(expr, ASSIGNS);
+    }
+
+    private static final AST.ExprVisitor<Boolean> ASSIGNS = new AST.ExprVisitor<Boolean>() {
+        @Override
+        public Boolean visitLiteral(AST.Literal l) {
+            return false;
+        }
+
+        @Override
+        public Boolean visitVariable(AST.Variable v) {
+            return false;
+        }
+
+        @Override
+        public Boolean visitAssignment(AST.Assignment a) {
+            return true;
+        }
+
+        @Override
+        public Boolean visitGrouping(AST.Grouping g) {
+            return assigns(g.expression);
+        }
+
+        @Override
+        public Boolean visitUnary(AST.Unary u) {
+            return assigns(u.right);
+        }
+
+        @Override
+        public Boolean visitBinary(AST.Binary b) {
+            return assigns(b.left) || assigns(b.right);
+        }
+    };
+
+    // =============== TYPES ===============
+    private ValueType typeOf(AST.Expr expr) {
+        return AST.visit(expr, types);
+    }
+
+    private final class Types implements AST.ExprVisitor<ValueType> {
+        @Override
+        public ValueType visitLiteral(AST.Literal l) {
+            return ValueType.ofLiteral(l.value);
+        }
+
+        @Override
+        public ValueType visitVariable(AST.Variable v) {
+            return lookup(v.name).type;
+        }
+
+        @Override
+        public ValueType visitAssignment(AST.Assignment a) {
+            return lookup(a.name).type;
+        }
+
+        @Override
+        public ValueType visitGrouping(AST.Grouping g) {
+            return typeOf(g.expression);
+        }
+
+        @Override
+        public ValueType visitUnary(AST.Unary u) {
+            if (u.op == Operator.NOT) return ValueType.BOOLEAN;
+            ValueType type = typeOf(u.right);
+            return type == ValueType.CHAR ? ValueType.INT : type;
+        }
+
+        @Override
+        public ValueType visitBinary(AST.Binary b) {
+            switch (b.op) {
+                case ADD:
+                    ValueType left = typeOf(b.left);
+                    ValueType right = typeOf(b.right);
+                    if (left == ValueType.STRING || right == ValueType.STRING) return ValueType.STRING;
+                    return ValueType.promote(left, right, b.op);
+                case SUBTRACT: case MULTIPLY: case DIVIDE:
+                    return ValueType.promote(typeOf(b.left), typeOf(b.right), b.op);
+                default:
+                    return ValueType.BOOLEAN;
+            }
+        }
+    }
+
+    // =============== REGISTERS ===============
+    // register file of a type: 0 = ints, 1 = doubles, 2 = refs
+    private static int file(ValueType type) {
+        switch (type) {
+            case FLOAT: case DOUBLE: return 1;
+            case STRING: return 2;
+            default: return 0;
+        }
+    }
+
+    private Reg allocate(ValueType type) {
+        int index;
+        switch (file(type)) {
+            case 1:
+                index = nextDouble++;
+                maxDoubles = Math.max(maxDoubles, nextDouble);
+                break;
+            case 2:
+                index = nextRef++;
+                maxRefs = Math.max(maxRefs, nextRef);
+                break;
+            default:
+                index = nextInt++;
+                maxInts = Math.max(maxInts, nextInt);
+                break;
+        }
+        if (index > MAX_OPERAND) throw new RuntimeException("Too many registers.");
+        return new Reg(type, index);
+    }
+
+    private Reg temp(ValueType type) {
+        return allocate(type);
+    }
+
+    private Reg lookup(String name) {
+        for (Map<String, Reg> scope : scopes) {
+            Reg reg = scope.get(name);
+            if (reg != null) return reg;
+        }
+        throw new RuntimeException("Variable '" + name + "' not declared.");
+    }
+
+    // =============== CONSTANT POOL ===============
+    private int number(double v) {
+        Long key = Double.doubleToRawLongBits(v);
+        Integer index = pool.get(key);
+        if (index == null) {
+            index = numbers.size();
+            numbers.add(v);
+            pool.put(key, index);
+        }
+        return index;
+    }
+
+    private int constant(Object v) {
+        // strings are keyed by themselves, null by the pool's own marker
+        Object key = v == null ? pool : v;
+        Integer index = pool.get(key);
+        if (index == null) {
+            index = constants.size();
+            constants.add(v);
+            pool.put(key, index);
+        }
+        return index;
+    }
+
+    // =============== EMISSION ===============
+    private void emit(int op, int a, int... operands) {
+        if (size + 1 + operands.length > code.length) code = Arrays.copyOf(code, code.length * 2);
+        code[size++] = op | a << 8;
+        for (int operand : operands) code[size++] = operand;
+    }
+
+    private Label label() {
+        Label label = new Label();
+        labels.add(label);
+        return label;
+    }
+
+    private void bind(Label label) {
+        label.position = size;
+    }
+
+    private void jump(Label target) {
+        // JMP keeps its target in the A field; recorded as ~index
+        target.uses.add(~size);
+        emit(JMP, 0);
+    }
+
+    private void branch(int op, Reg left, Reg right, Label target) {
+        emit(op, left.index, right.index, 0);
+        use(target);
+    }
+
+    // the word just emitted holds target's address
+    private void use(Label target) {
+        target.uses.add(size - 1);
+    }
+
+    private void patchJumps() {
+        for (Label label : labels) {
+            for (int use : label.uses) {
+                if (use < 0) {
+                    if (label.position > MAX_OPERAND) throw new RuntimeException("Program too large.");
+                    code[~use] = JMP | label.position << 8;
+                } else {
+                    code[use] = label.position;
+                }
+            }
+        }
+    }
+}
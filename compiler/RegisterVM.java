@@ -0,0 +1,138 @@
+package compiler;
+
+import java.io.PrintStream;
+import java.util.Objects;
+
+// Register machine for programs compiled by RegisterCompiler. Code is one flat
+// int[]: the low 8 bits of an instruction word hold the opcode and the upper
+// 24 bits its first operand (A); further operands (B, C) follow as whole words.
+// Registers live in three typed files (ints for tibuok/karakter/booleans,
+// doubles for lutaw/duhay, refs for karhan), so nothing is boxed while running.
+public class RegisterVM {
+    // =============== OPCODES ===============
+    // A = destination register unless noted; B, C = source registers
+    static final int HALT = 0;
+    static final int ICONST = 1;         // A, B = immediate
+    static final int DCONST = 2;         // A, B = index into numbers
+    static final int RCONST = 3;         // A, B = index into constants
+    static final int IMOV = 4, DMOV = 5, RMOV = 6;
+    static final int IADD = 7, ISUB = 8, IMUL = 9, IDIV = 10;
+    static final int DADD = 11, DSUB = 12, DMUL = 13, DDIV = 14;
+    static final int FADD = 15, FSUB = 16, FMUL = 17, FDIV = 18;   // double registers, float rounding
+    static final int INEG = 19, DNEG = 20, NOT = 21;
+    static final int I2D = 22, I2F = 23, D2F = 24, I2C = 25;
+    static final int ILT = 26, ILE = 27, IEQ = 28, INE = 29;
+    static final int DLT = 30, DLE = 31, DEQ = 32, DNE = 33;
+    static final int REQ = 34, RNE = 35;
+    static final int ITOS = 36, CTOS = 37, BTOS = 38, FTOS = 39, DTOS = 40;
+    static final int CONCAT = 41;
+    static final int JMP = 42;           // A = target
+    static final int JF = 43, JT = 44;   // A = condition, B = target
+    static final int JILT = 45, JILE = 46, JIEQ = 47, JINE = 48;   // A, B = operands, C = target
+    static final int PRINT = 49;         // A = string register
+
+    // Compiled program: code plus the constant pool and register file sizes.
+    static final class Program {
+        final int[] code;
+        final double[] numbers;
+        final Object[] constants;
+        final int ints, doubles, refs;
+
+        Program(int[] code, double[] numbers, Object[] constants, int ints, int doubles, int refs) {
+            this.code = code;
+            this.numbers = numbers;
+            this.constants = constants;
+            this.ints = ints;
+            this.doubles = doubles;
+            this.refs = refs;
+        }
+    }
+
+    private final PrintStream out;
+
+    public RegisterVM() {
+        this(System.out);
+    }
+
+    public RegisterVM(PrintStream out) {
+        this.out = out;
+    }
+
+    public void run(AST.Program program) {
+        run(new RegisterCompiler().compile(program));
+    }
+
+    void run(Program p) {
+        final int[] code = p.code;
+        final double[] numbers = p.numbers;
+        final Object[] constants = p.constants;
+        final int[] ints = new int[p.ints];
+        final double[] doubles = new double[p.doubles];
+        final Object[] refs = new Object[p.refs];
+
+        int pc = 0;
+        while (true) {
+            int word = code[pc];
+            int a = word >>> 8;
+            switch (word & 0xFF) {
+                case HALT: return;
+                case ICONST: ints[a] = code[pc + 1]; pc += 2; break;
+                case DCONST: doubles[a] = numbers[code[pc + 1]]; pc += 2; break;
+                case RCONST: refs[a] = constants[code[pc + 1]]; pc += 2; break;
+                case IMOV: ints[a] = ints[code[pc + 1]]; pc += 2; break;
+                case DMOV: doubles[a] = doubles[code[pc + 1]]; pc += 2; break;
+                case RMOV: refs[a] = refs[code[pc + 1]]; pc += 2; break;
+
+                case IADD: ints[a] = ints[code[pc + 1]] + ints[code[pc + 2]]; pc += 3; break;
+                case ISUB: ints[a] = ints[code[pc + 1]] - ints[code[pc + 2]]; pc += 3; break;
+                case IMUL: ints[a] = ints[code[pc + 1]] * ints[code[pc + 2]]; pc += 3; break;
+                case IDIV: ints[a] = ints[code[pc + 1]] / ints[code[pc + 2]]; pc += 3; break;
+                case DADD: doubles[a] = doubles[code[pc + 1]] + doubles[code[pc + 2]]; pc += 3; break;
+                case DSUB: doubles[a] = doubles[code[pc + 1]] - doubles[code[pc + 2]]; pc += 3; break;
+                case DMUL: doubles[a] = doubles[code[pc + 1]] * doubles[code[pc + 2]]; pc += 3; break;
+                case DDIV: doubles[a] = doubles[code[pc + 1]] / doubles[code[pc + 2]]; pc += 3; break;
+                case FADD: doubles[a] = (float) (doubles[code[pc + 1]] + doubles[code[pc + 2]]); pc += 3; break;
+                case FSUB: doubles[a] = (float) (doubles[code[pc + 1]] - doubles[code[pc + 2]]); pc += 3; break;
+                case FMUL: doubles[a] = (float) (doubles[code[pc + 1]] * doubles[code[pc + 2]]); pc += 3; break;
+                case FDIV: doubles[a] = (float) (doubles[code[pc + 1]] / doubles[code[pc + 2]]); pc += 3; break;
+                case INEG: ints[a] = -ints[code[pc + 1]]; pc += 2; break;
+                case DNEG: doubles[a] = -doubles[code[pc + 1]]; pc += 2; break;
+                case NOT: ints[a] = ints[code[pc + 1]] ^ 1; pc += 2; break;
+
+                case I2D: doubles[a] = ints[code[pc + 1]]; pc += 2; break;
+                case I2F: doubles[a] = (float) ints[code[pc + 1]]; pc += 2; break;
+                case D2F: doubles[a] = (float) doubles[code[pc + 1]]; pc += 2; break;
+                case I2C: ints[a] = (char) ints[code[pc + 1]]; pc += 2; break;
+
+                case ILT: ints[a] = ints[code[pc + 1]] < ints[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case ILE: ints[a] = ints[code[pc + 1]] <= ints[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case IEQ: ints[a] = ints[code[pc + 1]] == ints[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case INE: ints[a] = ints[code[pc + 1]] != ints[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case DLT: ints[a] = doubles[code[pc + 1]] < doubles[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case DLE: ints[a] = doubles[code[pc + 1]] <= doubles[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case DEQ: ints[a] = doubles[code[pc + 1]] == doubles[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case DNE: ints[a] = doubles[code[pc + 1]] != doubles[code[pc + 2]] ? 1 : 0; pc += 3; break;
+                case REQ: ints[a] = Objects.equals(refs[code[pc + 1]], refs[code[pc + 2]]) ? 1 : 0; pc += 3; break;
+                case RNE: ints[a] = Objects.equals(refs[code[pc + 1]], refs[code[pc + 2]]) ? 0 : 1; pc += 3; break;
+
+                case ITOS: refs[a] = Integer.toString(ints[code[pc + 1]]); pc += 2; break;
+                case CTOS: refs[a] = String.valueOf((char) ints[code[pc + 1]]); pc += 2; break;
+                case BTOS: refs[a] = ints[code[pc + 1]] != 0 ? "true" : "false"; pc += 2; break;
+                case FTOS: refs[a] = Float.toString((float) doubles[code[pc + 1]]); pc += 2; break;
+                case DTOS: refs[a] = Double.toString(doubles[code[pc + 1]]); pc += 2; break;
+                case CONCAT: refs[a] = String.valueOf(refs[code[pc + 1]]) + refs[code[pc + 2]]; pc += 3; break;
+
+                case JMP: pc = a; break;
+                case JF: pc = ints[a] == 0 ? code[pc + 1] : pc + 2; break;
+                case JT: pc = ints[a] != 0 ? code[pc + 1] : pc + 2; break;
+                case JILT: pc = ints[a] < ints[code[pc + 1]] ? code[pc + 2] : pc + 3; break;
+                case JILE: pc = ints[a] <= ints[code[pc + 1]] ? code[pc + 2] : pc + 3; break;
+                case JIEQ: pc = ints[a] == ints[code[pc + 1]] ? code[pc + 2] : pc + 3; break;
+                case JINE: pc = ints[a] != ints[code[pc + 1]] ? code[pc + 2] : pc + 3; break;
+
+                case PRINT: out.println(refs[a]); pc += 1; break;
+                default: throw new IllegalStateException("Bad opcode " + (word & 0xFF) + " at " + pc);
+            }
+        }
+    }
+}
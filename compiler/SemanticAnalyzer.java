@@ -2,110 +2,253 @@ package compiler;
 
 import java.util.*;
 
-public class SemanticAnalyzer {
+public class SemanticAnalyzer implements AST.StmtVisitor<Void>, AST.ExprVisitor<ValueType> {
 
-    private final Map<String, String> variables = new HashMap<>(); // varName -> type
+    private final SymbolTable symbols = new SymbolTable();
     private final List<String> errors = new ArrayList<>();
 
+    // =============== TYPE RULES ===============
+    // Result type of every operator on every operand type (pair), worked out
+    // once from the rules the backends implement (see Interpreter.binary);
+    // null marks a type error. Checking an operator node is one array load.
+    private static final int TYPES = ValueType.values().length;
+    private static final ValueType[][] BINARY = new ValueType[Operator.values().length][TYPES * TYPES];
+    private static final ValueType[][] UNARY = new ValueType[Operator.values().length][TYPES];
+
+    static {
+        for (Operator op : Operator.values()) {
+            for (ValueType left : ValueType.values()) {
+                for (ValueType right : ValueType.values()) {
+                    BINARY[op.ordinal()][left.ordinal() * TYPES + right.ordinal()] = binaryRule(op, left, right);
+                }
+            }
+        }
+        for (ValueType type : ValueType.values()) {
+            UNARY[Operator.NOT.ordinal()][type.ordinal()] = type == ValueType.BOOLEAN ? ValueType.BOOLEAN : null;
+            if (type.numeric()) {
+                boolean real = type == ValueType.FLOAT || type == ValueType.DOUBLE;
+                UNARY[Operator.SUBTRACT.ordinal()][type.ordinal()] = real ? type : ValueType.INT;
+            }
+        }
+    }
+
+    private static ValueType binaryRule(Operator op, ValueType left, ValueType right) {
+        boolean numbers = left.numeric() && right.numeric();
+        if (op.logical()) {
+            return left == ValueType.BOOLEAN && right == ValueType.BOOLEAN ? ValueType.BOOLEAN : null;
+        }
+        if (op.comparison()) {
+            // numbers compare after promotion; anything else only for (in)equality with itself
+            boolean equality = op == Operator.EQUAL || op == Operator.NOT_EQUAL;
+            return numbers || (equality && left == right) ? ValueType.BOOLEAN : null;
+        }
+        if (op == Operator.ADD && (left == ValueType.STRING || right == ValueType.STRING)) {
+            return ValueType.STRING;  // concatenation
+        }
+        if (op.arithmetic() && numbers) {
+            return ValueType.promote(left, right, op);  // tibuok < lutaw < duhay
+        }
+        return null;
+    }
+
+    // Type of an operator node whose operands are in error, so one mistake
+    // is not reported again by the condition or assignment around it.
+    private static ValueType fallback(Operator op) {
+        return op.comparison() || op.logical() ? ValueType.BOOLEAN : null;
+    }
+
     public void analyze(AST.Program program) {
+        check(program);
+
+        if (!errors.isEmpty()) {
+            Trace.warn("Semantic Errors Found:");
+            errors.forEach(Trace::warn);
+        } else {
+            Trace.info("Semantic Analysis Passed! No errors found.");
+        }
+    }
+
+    // Runs the analysis without printing and returns the errors found.
+    public List<String> check(AST.Program program) {
+        symbols.enter();
         for (AST.Stmt stmt : program.statements) {
             analyzeStmt(stmt);
         }
+        symbols.exit();
+        return errors;
+    }
 
-        if (!errors.isEmpty()) {
-            System.out.println("\nSemantic Errors Found:");
-            errors.forEach(System.out::println);
-        } else {
-            System.out.println("\nSemantic Analysis Passed! No errors found.");
+    // Analyzes statements [from, to) of a program as if everything before
+    // them had been analyzed already: globals (from declarations()) stands in
+    // for the earlier top-level declarations. Concatenating the errors of
+    // consecutive slices gives exactly the errors of check(program).
+    public List<String> check(List<AST.Stmt> statements, int from, int to, SymbolTable.Global[] globals) {
+        symbols.inherit(globals, from);
+        symbols.enter();
+        for (int i = from; i < to; i++) {
+            analyzeStmt(statements.get(i));
+        }
+        symbols.exit();
+        return errors;
+    }
+
+    // Cheap pre-pass for check(statements, from, to, globals): the first
+    // top-level declaration of every name (indexed by Symbols id), nothing
+    // else is looked at.
+    public static SymbolTable.Global[] declarations(List<AST.Stmt> statements) {
+        SymbolTable.Global[] globals = new SymbolTable.Global[64];
+        for (int i = 0; i < statements.size(); i++) {
+            if (!(statements.get(i) instanceof AST.VarDecl v)) continue;
+            if (v.symbol >= globals.length) globals = Arrays.copyOf(globals, Math.max(v.symbol + 1, globals.length * 2));
+            if (globals[v.symbol] == null) globals[v.symbol] = new SymbolTable.Global(i, ValueType.declared(v.type));
         }
+        return globals;
     }
 
     // --- Analyze Statements ---
     private void analyzeStmt(AST.Stmt stmt) {
-        if (stmt instanceof AST.VarDecl v) {
-            if (variables.containsKey(v.name)) {
-                errors.add("Variable '" + v.name + "' already declared.");
-            } else {
-                variables.put(v.name, v.type);
-                analyzeExpr(v.initializer);
-            }
-        } else if (stmt instanceof AST.Print p) {
-            analyzeExpr(p.expression);
-        } else if (stmt instanceof AST.ExpressionStmt e) {
-            analyzeExpr(e.expression);
-        } else if (stmt instanceof AST.Block b) {
-            Map<String, String> oldScope = new HashMap<>(variables);
-            for (AST.Stmt s : b.statements) {
-                analyzeStmt(s);
-            }
-            variables.clear();
-            variables.putAll(oldScope); // restore outer scope
-        } else if (stmt instanceof AST.IfStmt i) {
-            String condType = analyzeExpr(i.condition);
-            if (!condType.equals("BOOLEAN")) {
-                errors.add("Condition in IF statement must be BOOLEAN.");
-            }
-            analyzeStmt(i.thenBranch);
-            if (i.elseBranch != null) analyzeStmt(i.elseBranch);
-        } else if (stmt instanceof AST.WhileStmt w) {
-            String condType = analyzeExpr(w.condition);
-            if (!condType.equals("BOOLEAN")) {
-                errors.add("Condition in WHILE loop must be BOOLEAN.");
-            }
-            analyzeStmt(w.body);
-        } else if (stmt instanceof AST.ForStmt f) {
-            if (f.initializer != null) analyzeStmt(f.initializer);
-            if (f.condition != null && !analyzeExpr(f.condition).equals("BOOLEAN")) {
-                errors.add("Condition in FOR loop must be BOOLEAN.");
-            }
-            if (f.body != null) analyzeStmt(f.body);
-            if (f.increment != null) analyzeExpr(f.increment);
+        AST.visit(stmt, this);
+    }
+
+    @Override
+    public Void visitVarDecl(AST.VarDecl v) {
+        ValueType type = ValueType.declared(v.type);
+        ValueType initType = analyzeExpr(v.initializer);
+        if (!symbols.declare(v.symbol, type)) {
+            errors.add("Variable '" + v.name + "' already declared.");
+        } else if (initType != null && !ValueType.assignable(initType, type)) {
+            errors.add("Type mismatch: cannot assign " + initType + " to " + type + " '" + v.name + "'");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(AST.Print p) {
+        analyzeExpr(p.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(AST.ExpressionStmt e) {
+        analyzeExpr(e.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(AST.Block b) {
+        symbols.enter();
+        for (AST.Stmt s : b.statements) {
+            analyzeStmt(s);
         }
+        symbols.exit(); // drops only what this block declared
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(AST.IfStmt i) {
+        ValueType condType = analyzeExpr(i.condition);
+        if (condType != null && condType != ValueType.BOOLEAN) {
+            errors.add("Condition in IF statement must be BOOLEAN.");
+        }
+        analyzeStmt(i.thenBranch);
+        if (i.elseBranch != null) analyzeStmt(i.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(AST.WhileStmt w) {
+        ValueType condType = analyzeExpr(w.condition);
+        if (condType != null && condType != ValueType.BOOLEAN) {
+            errors.add("Condition in WHILE loop must be BOOLEAN.");
+        }
+        analyzeStmt(w.body);
+        return null;
+    }
+
+    @Override
+    public Void visitForStmt(AST.ForStmt f) {
+        symbols.enter(); // the initializer's variable belongs to the loop
+        if (f.initializer != null) analyzeStmt(f.initializer);
+        ValueType condType = analyzeExpr(f.condition);
+        if (condType != null && condType != ValueType.BOOLEAN) {
+            errors.add("Condition in FOR loop must be BOOLEAN.");
+        }
+        if (f.body != null) analyzeStmt(f.body);
+        if (f.increment != null) analyzeExpr(f.increment);
+        symbols.exit();
+        return null;
     }
 
     // --- Analyze Expressions ---
-    private String analyzeExpr(AST.Expr expr) {
-        if (expr == null) return "VOID";
-
-        if (expr instanceof AST.Literal l) {
-            if (l.value instanceof Integer) return "TIBUOK";
-            if (l.value instanceof Double) return "LUTAW";
-            if (l.value instanceof Boolean) return "BOOLEAN";
-            if (l.value instanceof String) return "STRING";
-        } else if (expr instanceof AST.Variable v) {
-            if (!variables.containsKey(v.name)) {
-                errors.add("Variable '" + v.name + "' not declared.");
-                return "UNKNOWN";
-            }
-            return variables.get(v.name);
-        } else if (expr instanceof AST.Assignment a) {
-            String varType = variables.get(a.name);
-            if (varType == null) {
-                errors.add("Variable '" + a.name + "' not declared.");
-                return "UNKNOWN";
-            }
-            String valType = analyzeExpr(a.value);
-            if (!varType.equals(valType)) {
-                errors.add("Type mismatch: cannot assign " + valType + " to " + varType + " '" + a.name + "'");
-            }
-            return varType;
-        } else if (expr instanceof AST.Binary b) {
-            String leftType = analyzeExpr(b.left);
-            String rightType = analyzeExpr(b.right);
-
-            // Simplified type rules
-            if (b.operator.matches("[+-/*]")) {
-                if (!leftType.equals(rightType)) {
-                    errors.add("Type mismatch in binary operation: " + leftType + " " + b.operator + " " + rightType);
-                }
-                return leftType;
-            } else if (b.operator.matches("[><==!=]")) {
-                return "BOOLEAN";
-            }
-        } else if (expr instanceof AST.Grouping g) {
-            return analyzeExpr(g.expression);
+    // Returns null when the type is unknown (absent expression or an earlier error).
+    private ValueType analyzeExpr(AST.Expr expr) {
+        if (expr == null) return null;
+        return AST.visit(expr, this);
+    }
+
+    @Override
+    public ValueType visitLiteral(AST.Literal l) {
+        return ValueType.ofLiteral(l.value);
+    }
+
+    @Override
+    public ValueType visitVariable(AST.Variable v) {
+        ValueType type = symbols.lookup(v.symbol);
+        if (type == null) errors.add("Variable '" + v.name + "' not declared.");
+        return type;
+    }
+
+    @Override
+    public ValueType visitAssignment(AST.Assignment a) {
+        ValueType varType = symbols.lookup(a.symbol);
+        if (varType == null) {
+            errors.add("Variable '" + a.name + "' not declared.");
+            return null;
+        }
+        ValueType valType = analyzeExpr(a.value);
+        if (valType != null && !ValueType.assignable(valType, varType)) {
+            errors.add("Type mismatch: cannot assign " + valType + " to " + varType + " '" + a.name + "'");
+        }
+        return varType;
+    }
+
+    @Override
+    public ValueType visitBinary(AST.Binary b) {
+        ValueType leftType = analyzeExpr(b.left);
+        ValueType rightType = analyzeExpr(b.right);
+        if (b.op == null) {
+            errors.add("Unknown operator '" + b.operator + "'.");
+            return null;
+        }
+        if (leftType == null || rightType == null) return fallback(b.op);  // already reported
+
+        ValueType result = BINARY[b.op.ordinal()][leftType.ordinal() * TYPES + rightType.ordinal()];
+        if (result == null) {
+            errors.add("Type mismatch in binary operation: " + leftType + " " + b.operator + " " + rightType);
+            return fallback(b.op);
         }
+        return result;
+    }
+
+    @Override
+    public ValueType visitUnary(AST.Unary u) {
+        ValueType operandType = analyzeExpr(u.right);
+        if (u.op == null) {
+            errors.add("Unknown operator '" + u.operator + "'.");
+            return null;
+        }
+        if (operandType == null) return fallback(u.op);
+
+        ValueType result = UNARY[u.op.ordinal()][operandType.ordinal()];
+        if (result == null) {
+            errors.add("Type mismatch in unary operation: " + u.operator + " " + operandType);
+            return fallback(u.op);
+        }
+        return result;
+    }
 
-        return "UNKNOWN";
+    @Override
+    public ValueType visitGrouping(AST.Grouping g) {
+        return analyzeExpr(g.expression);
     }
 }
@@ -0,0 +1,95 @@
+package compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Scoped symbol table with O(1) scope entry. All visible names live in one
+// array indexed by Symbols id, so a lookup is an array load, not a hash;
+// a declaration that shadows an outer name keeps a link to it, and each scope
+// remembers where its declarations start in an undo log. Leaving a scope pops
+// only the names it declared, so the cost is O(declared-in-scope) no matter how
+// many outer variables are visible or how deep the nesting goes.
+final class SymbolTable {
+    private static final class Symbol {
+        final int id;
+        final ValueType type;
+        final int depth;
+        final Symbol shadowed;
+
+        Symbol(int id, ValueType type, int depth, Symbol shadowed) {
+            this.id = id;
+            this.type = type;
+            this.depth = depth;
+            this.shadowed = shadowed;
+        }
+    }
+
+    // First top-level declaration of a name in a whole program (see inherit).
+    static final class Global {
+        final int index;  // statement index in Program.statements
+        final ValueType type;
+
+        Global(int index, ValueType type) {
+            this.index = index;
+            this.type = type;
+        }
+    }
+
+    private static final Global[] NO_GLOBALS = new Global[0];
+
+    private Symbol[] visible = new Symbol[64];  // by Symbols id
+    private final ArrayList<Symbol> declared = new ArrayList<>();
+    private int[] marks = new int[16];
+    private int depth = 0;
+    private Global[] globals = NO_GLOBALS;  // by Symbols id, may be shorter than visible
+    private int before;
+
+    // For analysing a slice of a program that starts at statement `before`:
+    // globals declared by earlier statements count as declared in the
+    // outermost scope. The array is shared read-only between slices, so no
+    // slice has to copy the names declared ahead of it.
+    void inherit(Global[] globals, int before) {
+        this.globals = globals;
+        this.before = before;
+    }
+
+    private ValueType inherited(int id) {
+        Global global = id < globals.length ? globals[id] : null;
+        return global != null && global.index < before ? global.type : null;
+    }
+
+    private Symbol visible(int id) {
+        return id < visible.length ? visible[id] : null;
+    }
+
+    void enter() {
+        if (depth == marks.length) marks = Arrays.copyOf(marks, depth * 2);
+        marks[depth++] = declared.size();
+    }
+
+    void exit() {
+        int mark = marks[--depth];
+        for (int i = declared.size() - 1; i >= mark; i--) {
+            Symbol symbol = declared.remove(i);
+            visible[symbol.id] = symbol.shadowed;
+        }
+    }
+
+    // false when the name is already declared in the current scope
+    boolean declare(int id, ValueType type) {
+        Symbol outer = visible(id);
+        if (outer != null && outer.depth == depth) return false;
+        if (outer == null && depth == 1 && inherited(id) != null) return false;
+        if (id >= visible.length) visible = Arrays.copyOf(visible, Math.max(id + 1, visible.length * 2));
+        Symbol symbol = new Symbol(id, type, depth, outer);
+        visible[id] = symbol;
+        declared.add(symbol);
+        return true;
+    }
+
+    // null when the name is not declared
+    ValueType lookup(int id) {
+        Symbol symbol = visible(id);
+        return symbol != null ? symbol.type : inherited(id);
+    }
+}
@@ -0,0 +1,167 @@
+package compiler;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// Compiler-wide intern table for identifiers and string literal contents.
+// Every distinct spelling gets a dense int id the first time the lexer sees
+// it, and one shared String. Later phases key their tables by id (arrays
+// instead of HashMaps), so a name is hashed once per occurrence, at lex
+// time, and repeated names cost no extra String.
+//
+// Lookups are lock-free and can run on any number of threads (parallel and
+// batch compiles); only a name seen for the first time takes the lock.
+//
+// A long-running JVM (the compile daemon, a large batch) would otherwise keep
+// every name of every program it has compiled. Each of those compilations
+// holds a lease while it works; once the table is past LIMIT names, new
+// leases wait for the running ones to finish and the table starts over empty.
+// Ids from before a reset mean nothing after it, so no AST may outlive the
+// lease it was built under. A plain command-line compile takes no lease and
+// never resets.
+public final class Symbols {
+    private static final class Entry {
+        final String text;
+        final int hash;
+        final int id;
+
+        Entry(String text, int hash, int id) {
+            this.text = text;
+            this.hash = hash;
+            this.id = id;
+        }
+    }
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Entry[].class);
+
+    private static volatile Entry[] table = new Entry[1 << 10];  // open addressing, at most half full
+    private static volatile String[] names = new String[1 << 9];
+    private static int count;  // guarded by Symbols.class
+    private static int leases;  // guarded by Symbols.class
+
+    static final int LIMIT = 1 << 16;  // names kept before the next reset
+
+    private Symbols() {}
+
+    // =============== INTERNING ===============
+    // hash must be the String.hashCode() of the chars (the lexer has it already).
+    public static int intern(char[] buf, int start, int length, int hash) {
+        Entry[] t = table;
+        int mask = t.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry e = (Entry) SLOT.getAcquire(t, i);
+            if (e == null) return add(buf, start, length, hash);
+            if (e.hash == hash && matches(e.text, buf, start, length)) return e.id;
+        }
+    }
+
+    public static int intern(char[] buf, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) hash = 31 * hash + buf[i];
+        return intern(buf, start, length, hash);
+    }
+
+    public static int intern(String text) {
+        int hash = text.hashCode();
+        Entry[] t = table;
+        int mask = t.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry e = (Entry) SLOT.getAcquire(t, i);
+            if (e == null) return add(text.toCharArray(), 0, text.length(), hash);
+            if (e.hash == hash && e.text.equals(text)) return e.id;
+        }
+    }
+
+    // The shared String for an id.
+    public static String name(int id) {
+        return names[id];
+    }
+
+    // Ids handed out so far are 0 .. count() - 1.
+    public static synchronized int count() {
+        return count;
+    }
+
+    // =============== LEASES ===============
+    // Taken around one compilation whose ids die with it; every acquire needs
+    // a release in a finally block.
+    public static synchronized void acquire() {
+        boolean interrupted = false;
+        while (count > LIMIT) {
+            if (leases == 0) {
+                reset();
+                break;
+            }
+            try {
+                Symbols.class.wait();
+            } catch (InterruptedException e) {
+                interrupted = true;  // the lease is still needed; keep the flag for the caller
+            }
+        }
+        leases++;
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    public static synchronized void release() {
+        if (--leases == 0 && count > LIMIT) {
+            reset();
+            Symbols.class.notifyAll();
+        }
+    }
+
+    private static void reset() {
+        table = new Entry[1 << 10];
+        names = new String[1 << 9];
+        count = 0;
+    }
+
+    private static boolean matches(String text, char[] buf, int start, int length) {
+        if (text.length() != length) return false;
+        for (int j = 0; j < length; j++) {
+            if (text.charAt(j) != buf[start + j]) return false;
+        }
+        return true;
+    }
+
+    // Slow path: look again under the lock (another thread may have added
+    // the name, or grown the table), then add it.
+    private static synchronized int add(char[] buf, int start, int length, int hash) {
+        Entry[] t = table;
+        int mask = t.length - 1;
+        int i = hash & mask;
+        for (Entry e; (e = t[i]) != null; i = (i + 1) & mask) {
+            if (e.hash == hash && matches(e.text, buf, start, length)) return e.id;
+        }
+
+        int id = count++;
+        Entry entry = new Entry(new String(buf, start, length), hash, id);
+        String[] n = names;
+        if (id == n.length) n = Arrays.copyOf(n, id * 2);
+        n[id] = entry.text;
+        names = n;
+
+        if (count * 2 > t.length) {
+            table = rehash(t, entry);
+        } else {
+            SLOT.setRelease(t, i, entry);  // readers that see the entry also see its name
+        }
+        return id;
+    }
+
+    private static Entry[] rehash(Entry[] old, Entry added) {
+        Entry[] t = new Entry[old.length * 2];
+        int mask = t.length - 1;
+        for (Entry e : old) {
+            if (e != null) place(t, mask, e);
+        }
+        place(t, mask, added);
+        return t;
+    }
+
+    private static void place(Entry[] t, int mask, Entry e) {
+        int i = e.hash & mask;
+        while (t[i] != null) i = (i + 1) & mask;
+        t[i] = e;
+    }
+}
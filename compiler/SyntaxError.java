@@ -0,0 +1,29 @@
+package compiler;
+
+import java.util.List;
+
+// Every syntax error of one parse, thrown once parsing is over. Like the
+// parser's internal panic signal it carries no stack trace: the diagnostics
+// say where the problem is.
+public final class SyntaxError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public final List<Diagnostic> diagnostics;
+
+    public SyntaxError(List<Diagnostic> diagnostics) {
+        super(describe(diagnostics), null, false, false);
+        this.diagnostics = List.copyOf(diagnostics);
+    }
+
+    // Same errors with line and column taken from the source text.
+    public SyntaxError locate(CharSequence source) {
+        return new SyntaxError(Diagnostic.locate(diagnostics, source));
+    }
+
+    private static String describe(List<Diagnostic> diagnostics) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(diagnostics.size()).append(diagnostics.size() == 1 ? " syntax error" : " syntax errors");
+        for (Diagnostic d : diagnostics) sb.append(System.lineSeparator()).append("  ").append(d);
+        return sb.toString();
+    }
+}
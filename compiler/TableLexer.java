@@ -0,0 +1,319 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// Single-pass lexer: every character is looked up once in a class table and
+// drives a small state machine, so the token type is known the moment the
+// token ends. Produces exactly the tokens of the regex based Lexical_Analyzer,
+// reported as TokenKind values.
+final class TableLexer implements TokenSource {
+
+    // =============== CHARACTER CLASSES ===============
+    private static final byte C_SPACE = 0;
+    private static final byte C_PUNCT = 1;
+    private static final byte C_QUOTE = 2;
+    private static final byte C_LETTER = 3;
+    private static final byte C_DIGIT = 4;
+    private static final byte C_DOT = 5;
+    private static final byte C_CTRL = 6;   // trimmed by String.trim() but not whitespace
+    private static final byte C_OTHER = 7;
+
+    private static final byte[] CLASS = new byte[128];
+
+    // =============== RUN STATES ===============
+    private static final int S_START = 0;
+    private static final int S_IDENT = 1;
+    private static final int S_INT = 2;
+    private static final int S_DOT = 3;
+    private static final int S_DOUBLE = 4;
+    private static final int S_OTHER = 5;
+    private static final int S_CTRL = 6;
+
+    // NEXT[state][class - C_LETTER]
+    private static final byte[][] NEXT = {
+        //           LETTER   DIGIT     DOT       CTRL    OTHER
+        /* START  */ {S_IDENT, S_INT,    S_OTHER,  S_CTRL, S_OTHER},
+        /* IDENT  */ {S_IDENT, S_IDENT,  S_OTHER,  S_CTRL, S_OTHER},
+        /* INT    */ {S_OTHER, S_INT,    S_DOT,    S_CTRL, S_OTHER},
+        /* DOT    */ {S_OTHER, S_DOUBLE, S_OTHER,  S_CTRL, S_OTHER},
+        /* DOUBLE */ {S_OTHER, S_DOUBLE, S_OTHER,  S_CTRL, S_OTHER},
+        /* OTHER  */ {S_OTHER, S_OTHER,  S_OTHER,  S_CTRL, S_OTHER},
+        /* CTRL   */ {S_CTRL,  S_CTRL,   S_CTRL,   S_CTRL, S_CTRL},
+    };
+
+    private static final int[] ACCEPT = {
+        TokenKind.UNKNOWN, TokenKind.IDENTIFIER, TokenKind.INT, TokenKind.UNKNOWN,
+        TokenKind.DOUBLE, TokenKind.UNKNOWN, TokenKind.UNKNOWN
+    };
+
+    // =============== KEYWORD PERFECT HASH ===============
+    private static final String[] WORDS;
+    private static final int[] WORD_KIND;
+    private static final int[] SLOT = new int[64];
+    private static final int SEED;
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            byte k;
+            if (Character.isWhitespace((char) c)) k = C_SPACE;
+            else if (c <= ' ') k = C_CTRL;
+            else if (c == '"') k = C_QUOTE;
+            else if (c >= '0' && c <= '9') k = C_DIGIT;
+            else if (c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) k = C_LETTER;
+            else if (c == '.') k = C_DOT;
+            else k = C_OTHER;
+            CLASS[c] = k;
+        }
+        for (char c : Lexical_Analyzer.PUNCTUATION_CHARS.toCharArray()) {
+            if (c == ' ') continue;
+            CLASS[c] = C_PUNCT;
+        }
+
+        int words = 0;
+        int[] kinds = new int[TokenKind.COUNT];
+        for (int k = 0; k < TokenKind.COUNT; k++) {
+            String text = TokenKind.TEXT[k];
+            if (text != null && Character.isLetter(text.charAt(0))) kinds[words++] = k;
+        }
+        WORDS = new String[words];
+        WORD_KIND = new int[words];
+        for (int i = 0; i < words; i++) {
+            WORD_KIND[i] = kinds[i];
+            WORDS[i] = TokenKind.TEXT[kinds[i]];
+        }
+
+        // search a multiplier that sends every word to its own slot
+        int seed = 0x9E3779B1;
+        while (!fill(seed)) seed += 2;
+        SEED = seed;
+    }
+
+    private static boolean fill(int seed) {
+        Arrays.fill(SLOT, -1);
+        for (int i = 0; i < WORDS.length; i++) {
+            String w = WORDS[i];
+            int slot = slot(w.hashCode(), w.length(), seed);
+            if (SLOT[slot] != -1) return false;
+            SLOT[slot] = i;
+        }
+        return true;
+    }
+
+    private static int slot(int hash, int length, int seed) {
+        return ((hash ^ length) * seed) >>> 26;
+    }
+
+    // =============== SCANNER STATE ===============
+    // buf holds either the whole source or a sliding window over a Reader;
+    // base is the source offset of buf[0].
+    private static final int WINDOW = 1 << 16;
+
+    private final Reader in;
+    private char[] buf;
+    private int limit;
+    private int base;
+    private int pos;
+    private int start;
+    private int end;
+    private int kind;
+    private int hash;  // String.hashCode() of an identifier, for Symbols
+    private String text;
+
+    TableLexer(char[] source) {
+        this(source, 0, source.length);
+    }
+
+    // Lexes source[from, to) in place; offsets (and the lines and columns of
+    // syntax errors) stay those of the whole source.
+    TableLexer(char[] source, int from, int to) {
+        this.in = null;
+        this.buf = source;
+        this.pos = from;
+        this.limit = to;
+    }
+
+    // Streaming mode: the source is pulled through a fixed window, never held whole.
+    TableLexer(Reader in) {
+        this.in = in;
+        this.buf = new char[WINDOW];
+    }
+
+    // source offset of the last token
+    @Override
+    public int offset() {
+        return base + start;
+    }
+
+    @Override
+    public CharSequence source() {
+        return in == null ? CharBuffer.wrap(buf, 0, limit) : null;
+    }
+
+    int length() {
+        return end - start;
+    }
+
+    // Lexeme of the last token; keywords, punctuation and identifiers reuse shared strings.
+    @Override
+    public String text() {
+        if (text == null) {
+            if (TokenKind.TEXT[kind] != null) text = TokenKind.TEXT[kind];
+            else if (kind == TokenKind.IDENTIFIER) text = Symbols.name(symbol());
+            else text = new String(buf, start, end - start);
+        }
+        return text;
+    }
+
+    @Override
+    public int symbol() {
+        if (kind == TokenKind.IDENTIFIER) return Symbols.intern(buf, start, end - start, hash);
+        if (kind == TokenKind.STRING) return Symbols.intern(buf, start + 1, Math.max(0, end - start - 2));
+        return -1;
+    }
+
+    private static int classOf(char c) {
+        if (c < 128) return CLASS[c];
+        return Character.isWhitespace(c) ? C_SPACE : C_OTHER;
+    }
+
+    // Pulls more input while keeping buf[start..limit), the token being scanned.
+    // start is rebased to 0; returns false at end of input.
+    private boolean more() {
+        if (in == null) return false;
+        int live = limit - start;
+        if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, live);
+            base += start;
+            start = 0;
+        } else if (live == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2); // token longer than the window
+        }
+        limit = live;
+        try {
+            int r;
+            do {
+                r = in.read(buf, limit, buf.length - limit);
+            } while (r == 0);
+            if (r < 0) return false;
+            limit += r;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int next() {
+        return kind = scan();
+    }
+
+    private int scan() {
+        text = null;
+        int p = pos;
+
+        for (;;) {
+            for (;;) {
+                while (p < limit && classOf(buf[p]) == C_SPACE) p++;
+                if (p < limit) break;
+                start = p;
+                if (!more()) {
+                    pos = end = start;
+                    return TokenKind.EOF;
+                }
+                p = start;
+            }
+
+            char c = buf[p];
+            int k = classOf(c);
+            start = p;
+
+            if (k == C_PUNCT) {
+                int single = TokenKind.punctuation(c);
+                int pair = TokenKind.withEqual(single);
+                if (pair != TokenKind.UNKNOWN && (p + 1 < limit || more()) && buf[start + 1] == '=') {
+                    end = pos = start + 2;
+                    return pair;
+                }
+                end = pos = start + 1;
+                return single;
+            }
+
+            if (k == C_QUOTE) {
+                p++;
+                for (;;) {
+                    while (p < limit && buf[p] != '"') p++;
+                    if (p < limit) {
+                        end = pos = p + 1;
+                        return TokenKind.STRING;
+                    }
+                    int at = p - start;
+                    if (!more()) break;
+                    p = start + at;
+                }
+                // unterminated string runs to the end of input (trimmed like the old lexer)
+                int e = limit;
+                while (e > start + 1 && buf[e - 1] <= ' ') e--;
+                end = e;
+                pos = limit;
+                return e - start == 1 ? TokenKind.STRING : TokenKind.UNKNOWN;
+            }
+
+            int state = S_START;
+            int hash = 0;
+            for (;;) {
+                while (p < limit) {
+                    c = buf[p];
+                    k = classOf(c);
+                    if (k <= C_QUOTE) break;
+                    state = NEXT[state][k - C_LETTER];
+                    hash = 31 * hash + c;
+                    p++;
+                }
+                if (p < limit) break;
+                int at = p - start;
+                boolean open = more();
+                p = start + at;
+                if (!open) break;
+            }
+            end = pos = p;
+
+            if (state == S_CTRL) {
+                // rare: control characters that String.trim() would have stripped
+                int s = start, e = end;
+                while (s < e && buf[s] <= ' ') s++;
+                while (e > s && buf[e - 1] <= ' ') e--;
+                if (s == e) continue;
+                start = s;
+                end = e;
+                state = S_START;
+                hash = 0;
+                for (int i = s; i < e; i++) {
+                    state = NEXT[state][classOf(buf[i]) - C_LETTER];
+                    hash = 31 * hash + buf[i];
+                }
+            }
+
+            if (state == S_IDENT) {
+                this.hash = hash;
+                return word(hash);
+            }
+            return ACCEPT[state];
+        }
+    }
+
+    private int word(int hash) {
+        int len = end - start;
+        int i = SLOT[slot(hash, len, SEED)];
+        if (i < 0) return TokenKind.IDENTIFIER;
+        String w = WORDS[i];
+        if (w.length() != len) return TokenKind.IDENTIFIER;
+        for (int j = 0; j < len; j++) {
+            if (w.charAt(j) != buf[start + j]) return TokenKind.IDENTIFIER;
+        }
+        return WORD_KIND[i];
+    }
+}
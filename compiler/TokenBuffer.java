@@ -0,0 +1,133 @@
+package compiler;
+
+import compiler.Lexical_Analyzer.Token;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Struct-of-arrays token stream: one byte of kind plus start/length into the
+// source per token. Lexemes are only turned into Strings when asked for.
+public final class TokenBuffer {
+    private final char[] source;
+    private boolean original = true;  // false when starts do not index the real source
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+
+    public TokenBuffer(char[] source) {
+        this.source = source;
+        // Sources run 2.4 to 5.5 chars per token (sample program, test corpus),
+        // so a quarter of the length needs at most one grow() and overshoots
+        // sparse code by well under half.
+        int capacity = Math.max(16, source.length / 4);
+        this.kinds = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+    }
+
+    public static TokenBuffer lex(char[] source) {
+        TokenBuffer buffer = new TokenBuffer(source);
+        TableLexer lexer = new TableLexer(source);
+        int kind;
+        while ((kind = lexer.next()) != TokenKind.EOF) {
+            buffer.add(kind, lexer.offset(), lexer.length());
+        }
+        return buffer;
+    }
+
+    // Rebuilds a buffer from the regex lexer's output (lexemes laid out one per slot).
+    public static TokenBuffer of(List<Token> tokens) {
+        StringBuilder text = new StringBuilder();
+        for (Token t : tokens) text.append(t.value).append(' ');
+        TokenBuffer buffer = new TokenBuffer(text.toString().toCharArray());
+        buffer.original = false;
+        int offset = 0;
+        for (Token t : tokens) {
+            buffer.add(TokenKind.of(t.type, t.value), offset, t.value.length());
+            offset += t.value.length() + 1;
+        }
+        return buffer;
+    }
+
+    void add(int kind, int start, int length) {
+        if (size == kinds.length) grow();
+        kinds[size] = (byte) kind;
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int i) {
+        return kinds[i];
+    }
+
+    public int start(int i) {
+        return starts[i];
+    }
+
+    public int length(int i) {
+        return lengths[i];
+    }
+
+    public String lexeme(int i) {
+        String fixed = TokenKind.TEXT[kinds[i]];
+        if (fixed != null) return fixed;
+        if (kinds[i] == TokenKind.IDENTIFIER) return Symbols.name(symbol(i));
+        return new String(source, starts[i], lengths[i]);
+    }
+
+    public int symbol(int i) {
+        if (kinds[i] == TokenKind.IDENTIFIER) return Symbols.intern(source, starts[i], lengths[i]);
+        if (kinds[i] == TokenKind.STRING) return Symbols.intern(source, starts[i] + 1, Math.max(0, lengths[i] - 2));
+        return -1;
+    }
+
+    // Replays the buffer as a pull source for the parser.
+    public TokenSource cursor() {
+        return new TokenSource() {
+            private int i = -1;
+
+            @Override
+            public int next() {
+                if (i < size) i++;
+                return i < size ? kinds[i] : TokenKind.EOF;
+            }
+
+            @Override
+            public String text() {
+                return i < size ? lexeme(i) : "";
+            }
+
+            @Override
+            public int symbol() {
+                return i < size ? TokenBuffer.this.symbol(i) : -1;
+            }
+
+            @Override
+            public int offset() {
+                return i < size ? starts[i] : (size == 0 ? 0 : starts[size - 1] + lengths[size - 1]);
+            }
+
+            @Override
+            public CharSequence source() {
+                return original ? CharBuffer.wrap(source) : null;
+            }
+        };
+    }
+
+    public Token token(int i) {
+        return new Token(TokenKind.TYPE[kinds[i]], lexeme(i), original ? starts[i] : -1);
+    }
+}
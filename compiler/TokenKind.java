@@ -0,0 +1,152 @@
+package compiler;
+
+// Interned token kinds. Every keyword and punctuation mark has its own kind,
+// so the parser compares small ints instead of strings. TYPE maps a kind back
+// to the coarse type names used by Lexical_Analyzer.Token.
+final class TokenKind {
+
+    static final int EOF = 0;
+    static final int IDENTIFIER = 1;
+    static final int INT = 2;
+    static final int DOUBLE = 3;
+    static final int STRING = 4;
+    static final int UNKNOWN = 5;
+    static final int TRUE = 6;
+    static final int FALSE = 7;
+
+    // keywords, in Lexical_Analyzer.KEYWORD_TABLE order
+    static final int FIRST_KEYWORD = 8;
+    static final int TIBUOK = 8;
+    static final int LUTAW = 9;
+    static final int DUHAY = 10;
+    static final int KARAKTER = 11;
+    static final int UG = 12;
+    static final int EDI = 13;
+    static final int ILIS = 14;
+    static final int KAHA = 15;
+    static final int ALANG = 16;
+    static final int SAMTANG = 17;
+    static final int BUHATA = 18;
+    static final int BUNGKA = 19;
+    static final int MOBALIK = 20;
+    static final int PADAYON = 21;
+    static final int ANGKAT = 22;
+    static final int IMPRENTA_GAWAS = 23;
+    static final int SULOD = 24;
+    static final int KARHAN = 25;
+
+    // single character punctuation
+    static final int SEMICOLON = 26;
+    static final int COMMA = 27;
+    static final int LEFT_PAREN = 28;
+    static final int RIGHT_PAREN = 29;
+    static final int LEFT_BRACE = 30;
+    static final int RIGHT_BRACE = 31;
+    static final int EQUAL = 32;
+    static final int BANG = 33;
+    static final int LESS = 34;
+    static final int GREATER = 35;
+    static final int PLUS = 36;
+    static final int MINUS = 37;
+    static final int SLASH = 38;
+    static final int STAR = 39;
+
+    // two character operators: a comparison mark followed by '=' 
+    static final int EQUAL_EQUAL = 40;
+    static final int BANG_EQUAL = 41;
+    static final int LESS_EQUAL = 42;
+    static final int GREATER_EQUAL = 43;
+
+    // logical operators are plain words, typed IDENTIFIER as in the regex lexer
+    static final int AND = 44;
+    static final int OR = 45;
+
+    static final int COUNT = 46;
+
+    // fixed lexeme per kind, null where the text comes from the source
+    static final String[] TEXT = new String[COUNT];
+    static final String[] TYPE = new String[COUNT];
+    private static final byte[] PUNCT = new byte[128];
+
+    static {
+        TYPE[EOF] = "EOF";
+        TYPE[IDENTIFIER] = "IDENTIFIER";
+        TYPE[INT] = "INT";
+        TYPE[DOUBLE] = "DOUBLE";
+        TYPE[STRING] = "STRING";
+        TYPE[UNKNOWN] = "UNKNOWN";
+        TYPE[TRUE] = TYPE[FALSE] = "BOOLEAN";
+        TEXT[TRUE] = "true";
+        TEXT[FALSE] = "false";
+
+        String[] keywords = Lexical_Analyzer.KEYWORD_TABLE;
+        for (int i = 0; i < keywords.length; i++) {
+            TEXT[FIRST_KEYWORD + i] = keywords[i];
+            TYPE[FIRST_KEYWORD + i] = "KEYWORD";
+        }
+
+        String punct = ";,(){}=!<>+-/*";
+        for (int i = 0; i < punct.length(); i++) {
+            char c = punct.charAt(i);
+            PUNCT[c] = (byte) (SEMICOLON + i);
+            TEXT[SEMICOLON + i] = String.valueOf(c);
+            TYPE[SEMICOLON + i] = "PUNCTUATION";
+        }
+
+        TEXT[EQUAL_EQUAL] = "==";
+        TEXT[BANG_EQUAL] = "!=";
+        TEXT[LESS_EQUAL] = "<=";
+        TEXT[GREATER_EQUAL] = ">=";
+        for (int k = EQUAL_EQUAL; k <= GREATER_EQUAL; k++) TYPE[k] = "PUNCTUATION";
+
+        TEXT[AND] = "and";
+        TEXT[OR] = "or";
+        TYPE[AND] = TYPE[OR] = "IDENTIFIER";
+    }
+
+    private TokenKind() {}
+
+    // kind of a punctuation character, or UNKNOWN
+    static int punctuation(char c) {
+        return c < 128 && PUNCT[c] != 0 ? PUNCT[c] : UNKNOWN;
+    }
+
+    // kind of c followed by '=', or UNKNOWN if that is not an operator
+    static int withEqual(int kind) {
+        switch (kind) {
+            case EQUAL: return EQUAL_EQUAL;
+            case BANG: return BANG_EQUAL;
+            case LESS: return LESS_EQUAL;
+            case GREATER: return GREATER_EQUAL;
+            default: return UNKNOWN;
+        }
+    }
+
+    static int keyword(String word) {
+        for (int k = FIRST_KEYWORD; k <= KARHAN; k++) {
+            if (TEXT[k].equals(word)) return k;
+        }
+        return UNKNOWN;
+    }
+
+    // kind of a token produced by the regex lexer
+    static int of(String type, String value) {
+        switch (type) {
+            case "KEYWORD": return keyword(value);
+            case "PUNCTUATION":
+                for (int k = SEMICOLON; k <= GREATER_EQUAL; k++) {
+                    if (TEXT[k].equals(value)) return k;
+                }
+                return UNKNOWN;
+            case "BOOLEAN": return value.equals("true") ? TRUE : FALSE;
+            case "IDENTIFIER":
+                if (value.equals("and")) return AND;
+                if (value.equals("or")) return OR;
+                return IDENTIFIER;
+            case "INT": return INT;
+            case "DOUBLE": return DOUBLE;
+            case "STRING": return STRING;
+            default: return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package compiler;
+
+// Pull interface between the lexer and the parser: one token at a time,
+// so nothing has to hold the whole token stream.
+public interface TokenSource {
+    // advances to the next token and returns its TokenKind (EOF at the end)
+    int next();
+
+    // lexeme of the current token
+    String text();
+
+    // source offset of the current token
+    int offset();
+
+    // Symbols id of the current identifier, or of the contents of the current
+    // string literal (without the quotes); -1 for any other token
+    int symbol();
+
+    // the whole source text when it is held in memory (used to turn offsets
+    // into lines and columns), otherwise null
+    default CharSequence source() {
+        return null;
+    }
+}
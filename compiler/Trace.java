@@ -0,0 +1,159 @@
+package compiler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Leveled diagnostics and trace output for the compiler phases. Nothing is
+// formatted unless the level is enabled, and enabled messages are handed to a
+// background thread that writes them to stderr in batches, so the compiling
+// thread never waits on the console.
+//
+// The level comes from -Dproglang.trace=<level> or Compiler --trace <level>;
+// the default (WARN) keeps compilation silent.
+public final class Trace {
+    public enum Level {
+        OFF,
+        ERROR,
+        WARN,
+        INFO,   // phase summaries
+        DEBUG,  // parser progress
+        TRACE   // every token
+    }
+
+    private static final int QUEUE_SIZE = 8192;
+
+    private static volatile Level level = initialLevel();
+
+    private static final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private static final AtomicLong submitted = new AtomicLong();
+    private static final Object lock = new Object();
+    private static long written;  // guarded by lock
+    private static volatile Thread writer;  // started with the first message
+
+    private Trace() {}
+
+    private static Level initialLevel() {
+        String value = System.getProperty("proglang.trace");
+        return value == null ? Level.WARN : parseLevel(value);
+    }
+
+    public static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown trace level '" + name + "'");
+        }
+    }
+
+    public static void level(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static Level level() {
+        return level;
+    }
+
+    // Guard for messages that are costly to build.
+    public static boolean enabled(Level at) {
+        return at != Level.OFF && at.ordinal() <= level.ordinal();
+    }
+
+    // =============== MESSAGES ===============
+    public static void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public static void trace(Object message) {
+        if (enabled(Level.TRACE)) enqueue(String.valueOf(message));
+    }
+
+    public static void log(Level at, String message) {
+        if (enabled(at)) enqueue(message);
+    }
+
+    private static void enqueue(String message) {
+        startWriter();
+        submitted.incrementAndGet();
+        try {
+            queue.put(message);  // blocks only when the writer is QUEUE_SIZE messages behind
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            submitted.decrementAndGet();
+        }
+    }
+
+    // Waits until every message logged so far has been written.
+    public static void flush() {
+        long target = submitted.get();
+        synchronized (lock) {
+            while (written < target) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // =============== WRITER THREAD ===============
+    private static void startWriter() {
+        if (writer != null) return;
+        synchronized (lock) {
+            if (writer != null) return;
+            Thread thread = new Thread(Trace::drain, "proglang-trace");
+            thread.setDaemon(true);
+            thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(Trace::flush, "proglang-trace-flush"));
+            writer = thread;
+        }
+    }
+
+    private static void drain() {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8), 1 << 16);
+        List<String> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            try {
+                for (String message : batch) {
+                    out.write(message);
+                    out.write('\n');
+                }
+                out.flush();
+            } catch (IOException e) {
+                // stderr is gone; keep draining so callers never block
+            }
+            synchronized (lock) {
+                written += batch.size();
+                lock.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+}
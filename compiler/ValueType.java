@@ -0,0 +1,46 @@
+package compiler;
+
+// Runtime value types shared by the execution backends.
+enum ValueType {
+    INT, FLOAT, DOUBLE, CHAR, BOOLEAN, STRING;
+
+    boolean numeric() {
+        return this == INT || this == FLOAT || this == DOUBLE || this == CHAR;
+    }
+
+    static ValueType declared(String keyword) {
+        switch (keyword) {
+            case "tibuok": return INT;
+            case "lutaw": return FLOAT;
+            case "duhay": return DOUBLE;
+            case "karakter": return CHAR;
+            case "karhan": return STRING;
+            default: throw new RuntimeException("Unknown type: " + keyword);
+        }
+    }
+
+    static ValueType ofLiteral(Object value) {
+        if (value instanceof Integer) return INT;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof Boolean) return BOOLEAN;
+        if (value instanceof String) return STRING;
+        throw new RuntimeException("Unsupported literal: " + value);
+    }
+
+    // result type of an arithmetic operator on two numbers
+    static ValueType promote(ValueType left, ValueType right, Operator op) {
+        if (!left.numeric() || !right.numeric()) {
+            throw new RuntimeException("Operator " + op.text + " needs numbers, found " + left + " and " + right);
+        }
+        if (left == DOUBLE || right == DOUBLE) return DOUBLE;
+        if (left == FLOAT || right == FLOAT) return FLOAT;
+        return INT;
+    }
+
+    // whether a value of type from may be stored into a variable of type to
+    static boolean assignable(ValueType from, ValueType to) {
+        if (from == to) return true;
+        if (to == FLOAT || to == DOUBLE) return from.numeric();
+        return (to == INT && from == CHAR) || (to == CHAR && from == INT);
+    }
+}
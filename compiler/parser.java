@@ -6,39 +6,99 @@ import java.util.List;
 import compiler.AST;
 
 public class parser {
-    private ArrayList<Token> tokens;
-    private int current = 0;
+    // Tokens are pulled from the source on demand into a tiny ring: the grammar
+    // only looks at the current token and the one before it.
+    private static final int RING = 4;
+    private static final int MASK = RING - 1;
+
+    private final TokenSource source;
+    private final int[] kinds = new int[RING];
+    private final String[] texts = new String[RING];
+    private final int[] offsets = new int[RING];
+    private final int[] symbols = new int[RING];
+    private final AstBuilder ast = new AstBuilder();
+    private int current = 0;  // tokens consumed so far
+    private int pulled = 0;   // tokens read from the source so far
+
+    // Syntax errors found so far, in source order. A bad statement is reported
+    // and skipped (panic mode), so one parse finds every error in the file.
+    public final List<Diagnostic> diagnostics = new ArrayList<>();
 
     public parser(ArrayList<Token> tokens) {
-        this.tokens = tokens;
+        this(TokenBuffer.of(tokens));
+    }
+
+    public parser(TokenBuffer tokens) {
+        this(tokens.cursor());
+    }
+
+    public parser(TokenSource source) {
+        this.source = source;
     }
 
     // =============== BASIC UTILITIES ===============
-    private Token peek() {
-        return tokens.get(current);
+    private int peek() {
+        if (pulled == current) {
+            int kind = source.next();
+            int slot = pulled & MASK;
+            kinds[slot] = kind;
+            // the source may reuse its buffer once we move on, so keep variable lexemes now;
+            // identifiers and string contents are interned once, here
+            int symbol = kind == TokenKind.IDENTIFIER || kind == TokenKind.STRING ? source.symbol() : -1;
+            symbols[slot] = symbol;
+            if (TokenKind.TEXT[kind] != null) texts[slot] = TokenKind.TEXT[kind];
+            else if (kind == TokenKind.IDENTIFIER) texts[slot] = Symbols.name(symbol);
+            else texts[slot] = source.text();
+            offsets[slot] = source.offset();
+            pulled++;
+        }
+        return kinds[current & MASK];
+    }
+
+    private String previous() {
+        return texts[(current - 1) & MASK];
+    }
+
+    private int previousSymbol() {
+        return symbols[(current - 1) & MASK];
+    }
+
+    private int previousOffset() {
+        return offsets[(current - 1) & MASK];
+    }
+
+    private int peekOffset() {
+        peek();
+        return offsets[current & MASK];
+    }
+
+    // Stamps a new node with the source offset it was parsed from.
+    private static <N extends AST.Node> N at(N node, int offset) {
+        node.offset = offset;
+        return node;
     }
 
-    private Token previous() {
-        return tokens.get(current - 1);
+    private AST.Binary binary(AST.Expr left, int offset, String operator, AST.Expr right) {
+        return at(new AST.Binary(left, operator, right), offset);
     }
 
     private boolean isAtEnd() {
-        return current >= tokens.size();
+        return peek() == TokenKind.EOF;
     }
 
-    private Token advance() {
+    private String advance() {
         if (!isAtEnd()) current++;
         return previous();
     }
 
-    private boolean check(String type) {
+    private boolean check(int kind) {
         if (isAtEnd()) return false;
-        return peek().type.equals(type);
+        return peek() == kind;
     }
 
-    private boolean match(String... types) {
-        for (String type : types) {
-            if (check(type)) {
+    private boolean match(int... kinds) {
+        for (int kind : kinds) {
+            if (check(kind)) {
                 advance();
                 return true;
             }
@@ -46,175 +106,311 @@ public class parser {
         return false;
     }
 
-    private Token consume(String expectedType, String message) {
-        if (check(expectedType)) {
+    private String found() {
+        return isAtEnd() ? "end of input" : texts[current & MASK];
+    }
+
+    private String consume(int expectedKind, String message) {
+        if (check(expectedKind)) {
             return advance();
         }
-        throw new RuntimeException(message + " Found: " + peek().value);
+        throw error(message + " Found: " + found());
+    }
+
+    private String consumeIdentifier(String message) {
+        if (check(TokenKind.IDENTIFIER)) return advance();
+        throw error(message + " Found: " + found());
+    }
+
+    // =============== ERROR RECOVERY ===============
+    // Thrown to unwind to the enclosing statement list after an error has been
+    // recorded. One shared instance without a stack trace: it costs nothing to throw.
+    private static final class Panic extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Panic() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Panic PANIC = new Panic();
+
+    // Records an error at the current token; the caller decides whether to throw.
+    private Panic error(String message) {
+        return error(peekOffset(), message);
+    }
+
+    private Panic error(int offset, String message) {
+        // one error per position; anything after it is usually a consequence
+        if (diagnostics.isEmpty() || diagnostics.get(diagnostics.size() - 1).offset != offset) {
+            diagnostics.add(new Diagnostic(offset, message));
+        }
+        return PANIC;
+    }
+
+    // Parses one declaration; after a syntax error skips ahead to the next
+    // statement boundary and returns null so the caller carries on.
+    private AST.Stmt declarationOrSkip() {
+        int start = current;
+        try {
+            return declaration();
+        } catch (Panic p) {
+            synchronize(start);
+            return null;
+        }
+    }
+
+    // Skips past the next ';', or up to a '}' or a token that starts a
+    // statement, always moving past where the failed statement began.
+    private void synchronize(int start) {
+        while (!isAtEnd()) {
+            int kind = peek();
+            if (current > start) {
+                if (kind == TokenKind.RIGHT_BRACE || startsStatement(kind)) return;
+                if (kinds[(current - 1) & MASK] == TokenKind.SEMICOLON) return;
+            }
+            advance();
+        }
     }
 
-    private Token consumeIdentifier(String message) {
-        if (check("IDENTIFIER")) return advance();
-        throw new RuntimeException(message + " Found: " + peek().value);
+    private boolean startsStatement(int kind) {
+        return kind == TokenKind.UG ||
+               kind == TokenKind.SAMTANG ||
+               kind == TokenKind.ALANG ||
+               kind == TokenKind.IMPRENTA_GAWAS ||
+               isType(kind);
     }
 
     // =============== EXPRESSIONS ===============
-    private void expression() {
-        logicOr();
+    private AST.Expr expression() {
+        return assignment();
+    }
+
+    private AST.Expr assignment() {
+        AST.Expr expr = logicOr();
+        if (match(TokenKind.EQUAL)) {
+            int equals = previousOffset();
+            AST.Expr value = assignment();
+            if (expr instanceof AST.Variable v) {
+                return at(new AST.Assignment(v.symbol, value), equals);
+            }
+            error(equals, "Invalid assignment target.");  // reported, parsing goes on
+        }
+        return expr;
     }
 
-    private void logicOr() {
-        logicAnd();
-        while (match("or")) logicAnd();
+    private AST.Expr logicOr() {
+        AST.Expr expr = logicAnd();
+        while (match(TokenKind.OR)) expr = binary(expr, previousOffset(), previous(), logicAnd());
+        return expr;
     }
 
-    private void logicAnd() {
-        equality();
-        while (match("and")) equality();
+    private AST.Expr logicAnd() {
+        AST.Expr expr = equality();
+        while (match(TokenKind.AND)) expr = binary(expr, previousOffset(), previous(), equality());
+        return expr;
     }
 
-    private void equality() {
-        comparison();
-        while (match("==", "!=")) comparison();
+    private AST.Expr equality() {
+        AST.Expr expr = comparison();
+        while (match(TokenKind.EQUAL_EQUAL, TokenKind.BANG_EQUAL)) expr = binary(expr, previousOffset(), previous(), comparison());
+        return expr;
     }
 
-    private void comparison() {
-        term();
-        while (match(">", ">=", "<", "<=")) term();
+    private AST.Expr comparison() {
+        AST.Expr expr = term();
+        while (match(TokenKind.GREATER, TokenKind.GREATER_EQUAL, TokenKind.LESS, TokenKind.LESS_EQUAL)) {
+            expr = binary(expr, previousOffset(), previous(), term());
+        }
+        return expr;
     }
 
-    private void term() {
-        factor();
-        while (match("+", "-")) factor();
+    private AST.Expr term() {
+        AST.Expr expr = factor();
+        while (match(TokenKind.PLUS, TokenKind.MINUS)) expr = binary(expr, previousOffset(), previous(), factor());
+        return expr;
     }
 
-    private void factor() {
-        unary();
-        while (match("*", "/")) unary();
+    private AST.Expr factor() {
+        AST.Expr expr = unary();
+        while (match(TokenKind.STAR, TokenKind.SLASH)) expr = binary(expr, previousOffset(), previous(), unary());
+        return expr;
     }
 
-    private void unary() {
-        if (match("-", "!")) unary();
-        else primary();
+    private AST.Expr unary() {
+        if (match(TokenKind.MINUS, TokenKind.BANG)) {
+            int start = previousOffset();
+            String operator = previous();
+            return at(new AST.Unary(operator, unary()), start);
+        }
+        return primary();
     }
 
-    private void primary() {
-        if (match("NUMBER", "STRING", "IDENTIFIER")) return;
-        if (match("(")) {
-            expression();
-            consume(")", "Expected ')' after expression.");
-            return;
+    private AST.Expr primary() {
+        int kind = peek();
+        if (match(TokenKind.INT, TokenKind.DOUBLE, TokenKind.STRING, TokenKind.TRUE, TokenKind.FALSE)) {
+            AST.Literal literal = ast.literal(kind, previous(), previousSymbol());
+            if (literal == null) {
+                // recorded like any syntax error; a stand-in 0 keeps the statement parsing
+                error(previousOffset(), "Integer literal out of range: " + previous());
+                literal = new AST.Literal(0);
+            }
+            return at(literal, previousOffset());
+        }
+        if (match(TokenKind.IDENTIFIER)) return at(ast.variable(previousSymbol()), previousOffset());
+        if (match(TokenKind.LEFT_PAREN)) {
+            int start = previousOffset();
+            AST.Expr expr = expression();
+            consume(TokenKind.RIGHT_PAREN, "Expected ')' after expression.");
+            return at(new AST.Grouping(expr), start);
         }
-        throw new RuntimeException("Unexpected token: " + peek().value);
+        throw error("Unexpected token: " + found());
     }
 
     // =============== STATEMENTS ===============
-    private void expressionStatement() {
-        expression();
-        consume(";", "Expected ';' after expression.");
+    private AST.Stmt expressionStatement() {
+        int start = peekOffset();
+        AST.Expr expr = expression();
+        consume(TokenKind.SEMICOLON, "Expected ';' after expression.");
+        return at(new AST.ExpressionStmt(expr), start);
     }
 
-    private void printStatement() {
-        expression();
-        consume(";", "Expected ';' after imprenta_gawas statement.");
-        System.out.println("PRINT statement parsed");
+    // The keyword statements below are called with their keyword just consumed.
+    private AST.Stmt printStatement() {
+        int start = previousOffset();
+        AST.Expr value = expression();
+        consume(TokenKind.SEMICOLON, "Expected ';' after imprenta_gawas statement.");
+        Trace.debug("PRINT statement parsed");
+        return at(new AST.Print(value), start);
     }
 
-    private void ifStatement() {
-        consume("(", "Expected '(' after 'ug'.");
-        expression(); // condition
-        consume(")", "Expected ')' after condition.");
-        block(); // then branch
-        if (match("edi")) block(); // else branch
+    private AST.Stmt ifStatement() {
+        int start = previousOffset();
+        consume(TokenKind.LEFT_PAREN, "Expected '(' after 'ug'.");
+        AST.Expr condition = expression();
+        consume(TokenKind.RIGHT_PAREN, "Expected ')' after condition.");
+        consume(TokenKind.LEFT_BRACE, "Expected '{' after condition.");
+        AST.Stmt thenBranch = block();
+        AST.Stmt elseBranch = null;
+        if (match(TokenKind.EDI)) {
+            consume(TokenKind.LEFT_BRACE, "Expected '{' after 'edi'.");
+            elseBranch = block();
+        }
+        return at(new AST.IfStmt(condition, thenBranch, elseBranch), start);
     }
 
-    private void whileStatement() {
-        consume("(", "Expected '(' after 'samtang'.");
-        expression();
-        consume(")", "Expected ')' after condition.");
-        statement();
+    private AST.Stmt whileStatement() {
+        int start = previousOffset();
+        consume(TokenKind.LEFT_PAREN, "Expected '(' after 'samtang'.");
+        AST.Expr condition = expression();
+        consume(TokenKind.RIGHT_PAREN, "Expected ')' after condition.");
+        return at(new AST.WhileStmt(condition, statement()), start);
     }
 
-    private void forStatement() {
-        consume("(", "Expected '(' after 'alang'.");
+    private AST.Stmt forStatement() {
+        int start = previousOffset();
+        consume(TokenKind.LEFT_PAREN, "Expected '(' after 'alang'.");
 
         // 1️⃣ Initializer
-        if (match(";")) {
-            // No initializer
-        } else if (isType(peek().type)) {
-            declaration();
+        AST.Stmt initializer;
+        if (match(TokenKind.SEMICOLON)) {
+            initializer = null;
+        } else if (isType(peek())) {
+            initializer = declaration();
         } else {
-            expressionStatement();
+            initializer = expressionStatement();
         }
 
         // 2️⃣ Condition
-        if (!check(";")) expression();
-        consume(";", "Expected ';' after loop condition.");
+        AST.Expr condition = null;
+        if (!check(TokenKind.SEMICOLON)) condition = expression();
+        consume(TokenKind.SEMICOLON, "Expected ';' after loop condition.");
 
         // 3️⃣ Increment
-        if (!check(")")) expression();
-        consume(")", "Expected ')' after for clauses.");
+        AST.Expr increment = null;
+        if (!check(TokenKind.RIGHT_PAREN)) increment = expression();
+        consume(TokenKind.RIGHT_PAREN, "Expected ')' after for clauses.");
 
         // 4️⃣ Body
-        statement();
+        return at(new AST.ForStmt(initializer, condition, increment, statement()), start);
     }
 
-    private void block() {
-        while (!check("}") && !isAtEnd()) {
-            declaration();
+    // called after '{'
+    private AST.Stmt block() {
+        int start = previousOffset();
+        int mark = ast.mark();
+        while (!check(TokenKind.RIGHT_BRACE) && !isAtEnd()) {
+            AST.Stmt stmt = declarationOrSkip();
+            if (stmt != null) ast.push(stmt);
         }
-        consume("}", "Expected '}' after block.");
+        consume(TokenKind.RIGHT_BRACE, "Expected '}' after block.");
+        return at(new AST.Block(ast.listFrom(mark)), start);
     }
 
-    private void statement() {
-        if (match("ug")) {
-            ifStatement();
-        } else if (match("samtang")) {
-            whileStatement();
-        } else if (match("alang")) {
-            forStatement();
-        } else if (match("imprenta_gawas")) {
-            printStatement();
+    private AST.Stmt statement() {
+        if (match(TokenKind.UG)) {
+            return ifStatement();
+        } else if (match(TokenKind.SAMTANG)) {
+            return whileStatement();
+        } else if (match(TokenKind.ALANG)) {
+            return forStatement();
+        } else if (match(TokenKind.IMPRENTA_GAWAS)) {
+            return printStatement();
+        } else if (match(TokenKind.LEFT_BRACE)) {
+            return block();
         } else {
-            expressionStatement();
+            return expressionStatement();
         }
     }
 
     // =============== DECLARATIONS ===============
-    private boolean isType(String tokenType) {
-        return tokenType.equals("tibuok") ||
-               tokenType.equals("lutaw") ||
-               tokenType.equals("duhay") ||
-               tokenType.equals("karakter") ||
-               tokenType.equals("karhan");
+    private boolean isType(int kind) {
+        return kind == TokenKind.TIBUOK ||
+               kind == TokenKind.LUTAW ||
+               kind == TokenKind.DUHAY ||
+               kind == TokenKind.KARAKTER ||
+               kind == TokenKind.KARHAN;
     }
 
     private AST.Stmt varDeclaration() {
-        Token typeToken = previous(); // fixed type mismatch
-        Token name = consumeIdentifier("Expected variable name after type.");
+        String type = previous(); // fixed type mismatch
+        int start = previousOffset();
+        consumeIdentifier("Expected variable name after type.");
+        int name = previousSymbol();
 
         AST.Expr initializer = null;
-        if (match("=")) initializer = null; // placeholder for expression()
+        if (match(TokenKind.EQUAL)) initializer = expression();
 
-        consume(";", "Expected ';' after variable declaration.");
-        return new AST.VarDecl(typeToken.value, name.value, initializer);
+        consume(TokenKind.SEMICOLON, "Expected ';' after variable declaration.");
+        return at(new AST.VarDecl(type, name, initializer), start);
     }
 
     private AST.Stmt declaration() {
-        if (match("tibuok", "lutaw", "duhay", "karakter", "karhan")) {
+        if (match(TokenKind.TIBUOK, TokenKind.LUTAW, TokenKind.DUHAY, TokenKind.KARAKTER, TokenKind.KARHAN)) {
             return varDeclaration();
         } else {
-            statement();
-            return null; // statements do not return AST nodes yet
+            return statement();
         }
     }
 
     // =============== PROGRAM ENTRY ===============
+    // Parses the whole program; throws a SyntaxError listing every error found.
     public AST.Program parseProgram() {
-        List<AST.Stmt> statements = new ArrayList<>();
+        AST.Program program = parseRecovering();
+        if (diagnostics.isEmpty()) return program;
+        CharSequence text = source.source();
+        SyntaxError error = new SyntaxError(diagnostics);
+        throw text != null ? error.locate(text) : error;
+    }
+
+    // Parses the whole program, leaving syntax errors in diagnostics; the
+    // result holds every statement that parsed.
+    public AST.Program parseRecovering() {
+        int mark = ast.mark();
         while (!isAtEnd()) {
-            statements.add(declaration());
+            AST.Stmt stmt = declarationOrSkip();
+            if (stmt != null) ast.push(stmt);
         }
-        return new AST.Program(statements);
+        return new AST.Program(ast.listFrom(mark));
     }
 }
@@ -0,0 +1,67 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+// write -> read must give back a program that generates the same code, and
+// damaged or crafted input must fail with IllegalArgumentException only.
+class AstFormatTest {
+    private static final String[] PROGRAMS = {
+        "tibuok x = 2147483647;\nx = x + 1;\nimprenta_gawas(x);\n",
+        "duhay d = 0.0 / 0.0;\nimprenta_gawas(d == d);\nimprenta_gawas(-d);\n",
+        "karhan s = \"a b\" + 1 + true;\nug (s != \"\") { imprenta_gawas(s); } edi { imprenta_gawas(\"none\"); }\n",
+        "tibuok i = 0;\nsamtang (i < 3 and !(i == 5) or false) { tibuok j = i * 2; i = i + 1; }\n",
+        "alang (tibuok k = 0; k < 4; k = k + 1) { { tibuok k2 = k; imprenta_gawas(k2 / 2); } }\nlutaw f = 1.5;\n",
+    };
+
+    @Test
+    void roundTripKeepsGeneratedCodeAndOffsets() throws IOException {
+        for (String source : PROGRAMS) assertRoundTrip(source);
+        assertRoundTrip(Files.readString(Path.of("compiler", "proglang.txt")));
+    }
+
+    @Test
+    void nestingPastTheLimitIsRejected() {
+        byte[] crafted = new byte[11 + 100_000];
+        ByteBuffer.wrap(crafted).putInt(0x504C4153);   // magic
+        crafted[4] = 1;                                  // version 1: no offsets
+        crafted[5] = 0;                                  // empty string table
+        crafted[6] = 1;                                  // one statement
+        crafted[7] = 2;                                  // PRINT
+        Arrays.fill(crafted, 8, crafted.length, (byte) 24);  // GROUPING all the way down
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> AstFormat.read(ByteBuffer.wrap(crafted)));
+        assertEquals("AST nested deeper than " + AstFormat.MAX_DEPTH, e.getMessage());
+    }
+
+    @Test
+    void truncatedInputIsRejected() {
+        byte[] bytes = AstFormat.write(parse(PROGRAMS[3]));
+        for (int length = 0; length < bytes.length; length++) {
+            ByteBuffer cut = ByteBuffer.wrap(bytes, 0, length);
+            assertThrows(IllegalArgumentException.class, () -> AstFormat.read(cut));
+        }
+    }
+
+    private static void assertRoundTrip(String source) {
+        AST.Program program = parse(source);
+        byte[] bytes = AstFormat.write(program);
+        AST.Program decoded = AstFormat.read(ByteBuffer.wrap(bytes));
+        assertEquals(new CodeGenerator().generate(program), new CodeGenerator().generate(decoded));
+        // the encoding covers every field and offset, so equal bytes mean an equal tree
+        assertArrayEquals(bytes, AstFormat.write(decoded));
+    }
+
+    private static AST.Program parse(String source) {
+        return new parser(TokenBuffer.lex(source.toCharArray())).parseProgram();
+    }
+}
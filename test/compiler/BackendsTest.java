@@ -0,0 +1,179 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+// Differential check of the execution backends: every program must print the
+// same lines, and fail the same way, on each of them, before and after the
+// Optimizer has folded it. The edge cases also have their output pinned.
+class BackendsTest {
+    static final Map<String, String> PROGRAMS = new LinkedHashMap<>();
+
+    static {
+        PROGRAMS.put("overflow",
+            "tibuok x = 2147483647;\nx = x + 1;\nimprenta_gawas x;\n"
+          + "tibuok m = 65536 * 65536;\nimprenta_gawas m;\n"
+          + "tibuok k = 46341;\nimprenta_gawas k * k;\n"
+          + "imprenta_gawas -2147483647 - 2;\n");
+        PROGRAMS.put("nan",
+            "duhay d = 1.0 / 0.0;\nimprenta_gawas d;\nimprenta_gawas -d;\n"
+          + "duhay n = 0.0 / 0.0;\nimprenta_gawas n;\n"
+          + "imprenta_gawas n == n;\nimprenta_gawas n != n;\nimprenta_gawas n < 1.0;\nimprenta_gawas n > 1.0;\n");
+        PROGRAMS.put("divideByZero",
+            "tibuok z = 0;\nimprenta_gawas 1;\nimprenta_gawas 10 / z;\nimprenta_gawas 2;\n");
+        PROGRAMS.put("divideByConstantZero",
+            "imprenta_gawas 1;\nimprenta_gawas 10 / 0;\n");
+        PROGRAMS.put("shortCircuit",
+            "tibuok z = 0;\n"
+          + "ug (z != 0 and 1 / z > 0) { imprenta_gawas \"no\"; } edi { imprenta_gawas \"and\"; }\n"
+          + "ug (z == 0 or 1 / z > 0) { imprenta_gawas \"or\"; }\n");
+        PROGRAMS.put("shadowing",
+            "tibuok x = 1;\n"
+          + "{\n    tibuok x = 2;\n    imprenta_gawas x;\n"
+          + "    {\n        tibuok x = 3;\n        x = x + 10;\n        imprenta_gawas x;\n    }\n"
+          + "    imprenta_gawas x;\n}\n"
+          + "imprenta_gawas x;\n"
+          + "alang (tibuok i = 0; i < 3; i = i + 1) {\n    tibuok x = i * 100;\n    imprenta_gawas x;\n}\n"
+          + "alang (tibuok i = 5; i < 7; i = i + 1) {\n    imprenta_gawas i;\n}\n"
+          + "karhan s = \"a\";\ntibuok j = 0;\n"
+          + "samtang (j < 3) {\n    karhan s = \"b\";\n    s = s + j;\n    imprenta_gawas s;\n    j = j + 1;\n}\n"
+          + "imprenta_gawas s;\n");
+        PROGRAMS.put("numbers",
+            "lutaw f = 0.1;\nimprenta_gawas f;\nimprenta_gawas f * 3;\nimprenta_gawas f + 0.2;\n"
+          + "imprenta_gawas 7 / 2;\nimprenta_gawas -7 / 2;\nimprenta_gawas 7 / 2.0;\n"
+          + "karakter c = 65;\nimprenta_gawas c;\n"
+          + "imprenta_gawas \"n=\" + 1.5 + \" \" + (1 < 2) + \" \" + 3;\n");
+        PROGRAMS.put("loops",
+            "tibuok sum = 0;\n"
+          + "alang (tibuok i = 0; i < 50; i = i + 1) {\n"
+          + "    tibuok j = 0;\n"
+          + "    samtang (j < 10) {\n"
+          + "        ug (i / 2 * 2 == i) { sum = sum + j; } edi { sum = sum - 1; }\n"
+          + "        j = j + 1;\n"
+          + "    }\n"
+          + "}\n"
+          + "imprenta_gawas sum;\n"
+          + "duhay x = 0.0;\n"
+          + "alang (tibuok i = 0; i < 100; i = i + 1) {\n    x = x + i * 0.5 / 3.0;\n    ug (x > 100.0) { x = x - 100.0; }\n}\n"
+          + "imprenta_gawas x;\n");
+    }
+
+    private static int classes = 0;
+
+    static AST.Program parse(String source) {
+        return new parser(TokenBuffer.lex(source.toCharArray())).parseProgram();
+    }
+
+    // What a run printed, then the exception it stopped with, if any.
+    static String output(Consumer<PrintStream> run) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        try {
+            run.accept(out);
+        } catch (RuntimeException e) {
+            out.println("!! " + e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        return bytes.toString();
+    }
+
+    static String interpret(AST.Program program) {
+        return output(out -> new Interpreter(out).run(program));
+    }
+
+    static String registerVM(AST.Program program) {
+        return output(out -> new RegisterVM(out).run(program));
+    }
+
+    // the generated main prints through System.out
+    static String bytecode(AST.Program program) {
+        String name = "BackendsTest" + classes++;
+        byte[] bytes = new BytecodeGenerator().generate(program, name);
+        return output(out -> {
+            PrintStream old = System.out;
+            System.setOut(out);
+            try {
+                new ProgramClassLoader().run(name, bytes);
+            } finally {
+                System.setOut(old);
+            }
+        });
+    }
+
+    private static void assertSameOnEveryBackend(String name, String source) {
+        for (boolean optimized : new boolean[] {false, true}) {
+            AST.Program program = parse(source);
+            if (optimized) program = new Optimizer().optimize(program);
+            String expected = interpret(program);
+            assertEquals(expected, registerVM(program), name + (optimized ? " (optimized, register VM)" : " (register VM)"));
+            assertEquals(expected, bytecode(program), name + (optimized ? " (optimized)" : ""));
+        }
+    }
+
+    @Test
+    void everyProgramPrintsTheSameOnEveryBackend() {
+        PROGRAMS.forEach((name, source) -> {
+            assertEquals(List.of(), new SemanticAnalyzer().check(parse(source)), name);
+            assertSameOnEveryBackend(name, source);
+        });
+    }
+
+    @Test
+    void samplePrintsTheSameOnEveryBackend() throws IOException {
+        assertSameOnEveryBackend("proglang.txt", Files.readString(Path.of("compiler", "proglang.txt")));
+    }
+
+    // compiled register code holds no state of a run, so it can be run again
+    @Test
+    void compiledRegisterCodeRunsTheSameEveryTime() {
+        PROGRAMS.forEach((name, source) -> {
+            AST.Program program = new Optimizer().optimize(parse(source));
+            RegisterVM.Program code = new RegisterCompiler().compile(program);
+            String expected = interpret(program);
+            for (int run = 0; run < 3; run++) {
+                assertEquals(expected, output(out -> new RegisterVM(out).run(code)), name + " run " + run);
+            }
+        });
+    }
+
+    @Test
+    void intArithmeticWrapsAround() {
+        assertEquals(lines("-2147483648", "0", "-2147479015", "2147483647"), interpret(parse(PROGRAMS.get("overflow"))));
+    }
+
+    @Test
+    void nanComparesUnequalToEverything() {
+        assertEquals(lines("Infinity", "-Infinity", "NaN", "false", "true", "false", "false"),
+            interpret(parse(PROGRAMS.get("nan"))));
+    }
+
+    @Test
+    void intDivisionByZeroStopsTheProgram() {
+        String stopped = lines("1", "!! ArithmeticException: / by zero");
+        assertEquals(stopped, interpret(parse(PROGRAMS.get("divideByZero"))));
+        // folding must not turn the failure into a value
+        assertEquals(stopped, interpret(new Optimizer().optimize(parse(PROGRAMS.get("divideByConstantZero")))));
+    }
+
+    @Test
+    void innerDeclarationsShadowOnlyTheirScope() {
+        assertEquals(lines("2", "13", "2", "1", "0", "100", "200", "5", "6", "b0", "b1", "b2", "a"),
+            interpret(parse(PROGRAMS.get("shadowing"))));
+    }
+
+    static String lines(String... lines) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) sb.append(line).append(System.lineSeparator());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Damaged entries must cost a recompile, never an error.
+class CompileCacheTest {
+    private static final String SOURCE = "tibuok x = 2;\nimprenta_gawas(x * 21);\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void damagedLengthIsAMiss() throws IOException {
+        CompileCache cache = new CompileCache(dir.resolve("cache"), CompileCache.DEFAULT_MAX_BYTES);
+        Path source = write(SOURCE);
+        String code = cache.compile(source).code;
+        Path entry = onlyEntry(dir.resolve("cache"));
+
+        byte[] bytes = Files.readAllBytes(entry);
+        ByteBuffer.wrap(bytes).putInt(4, Integer.MAX_VALUE);  // length of the generated code
+        Files.write(entry, bytes);
+
+        String key = CompileCache.key(SOURCE.getBytes(StandardCharsets.UTF_8));
+        assertNull(cache.get(key));
+        assertFalse(Files.exists(entry));
+        assertEquals(code, cache.compile(source).code);
+    }
+
+    @Test
+    void damagedAstIsReplacedOnFirstUse() throws IOException {
+        CompileCache cache = new CompileCache(dir.resolve("cache"), CompileCache.DEFAULT_MAX_BYTES);
+        Path source = write(SOURCE);
+        String expected = new CodeGenerator().generate(cache.compile(source).program());
+        Path entry = onlyEntry(dir.resolve("cache"));
+
+        byte[] bytes = Files.readAllBytes(entry);
+        bytes[bytes.length - 3] = (byte) 0x7F;  // a bad tag inside the AST
+        Files.write(entry, bytes);
+
+        CompileCache.Entry hit = cache.compile(source);
+        assertEquals(1, cache.hits.get());
+        assertEquals(expected, new CodeGenerator().generate(hit.program()));
+        // the entry on disk was rewritten, so the next hit decodes cleanly
+        assertFalse(Arrays.equals(bytes, Files.readAllBytes(entry)));
+        assertNotNull(cache.compile(source).program());
+    }
+
+    @Test
+    void diagnosticsLongerThan64KiloBytesAreStored() throws IOException {
+        CompileCache cache = new CompileCache(dir.resolve("cache"), CompileCache.DEFAULT_MAX_BYTES);
+        String long1 = "é".repeat(40_000);  // 80 000 bytes of UTF-8
+        AST.Program program = new parser(TokenBuffer.lex(SOURCE.toCharArray())).parseProgram();
+        cache.put("k", new CompileCache.Entry("code", program, List.of(long1, "short")));
+        CompileCache.Entry entry = cache.get("k");
+        assertEquals(List.of(long1, "short"), entry.semanticErrors);
+        assertEquals("code", entry.code);
+    }
+
+    private Path write(String text) throws IOException {
+        Path source = dir.resolve("p.txt");
+        Files.writeString(source, text);
+        return source;
+    }
+
+    private static Path onlyEntry(Path cacheDir) throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.filter(p -> p.toString().endsWith(".entry")).findFirst().orElseThrow();
+        }
+    }
+}
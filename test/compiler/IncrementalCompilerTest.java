@@ -0,0 +1,114 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Edits recompiled region by region must report what a full compile reports.
+class IncrementalCompilerTest {
+    private static final String GOOD = "tibuok x = 1;\nimprenta_gawas x;\ntibuok y = x + 2;\nimprenta_gawas y;\n";
+    private static final String BAD = "tibuok x = 1;\nimprenta_gawas x;\ntibuok y = x + ;\nimprenta_gawas y\ntibuok = 3;\n";
+
+    private static String full(String source) {
+        return new CodeGenerator().generate(new Optimizer().optimize(BackendsTest.parse(source)));
+    }
+
+    // one statement per line; k % 4 picks the shape
+    private static String line(int k) {
+        switch (k % 4) {
+            case 0: return "tibuok a" + k + " = " + k + " * 2 + 1;";
+            case 1: return "ug (a" + (k - 1) + " > 3) { a" + (k - 1) + " = a" + (k - 1) + " - 1; } edi { imprenta_gawas \"x;}\"; }";
+            case 2: return "alang (tibuok i = 0; i < 3; i = i + 1) { imprenta_gawas a" + (k - 2) + " + i; }";
+            default: return "karhan s" + k + " = \"v\" + a" + (k - 3) + "; imprenta_gawas s" + k + ";";
+        }
+    }
+
+    private static List<String> errors(Runnable compile) {
+        SyntaxError error = assertThrows(SyntaxError.class, compile::run);
+        List<String> messages = new ArrayList<>();
+        for (Diagnostic d : error.diagnostics) messages.add(d.toString());
+        return messages;
+    }
+
+    @Test
+    void syntaxErrorsOfEveryRegionAreFilePositions() {
+        List<String> full = errors(() -> new parser(TokenBuffer.lex(BAD.toCharArray())).parseProgram());
+        assertEquals(List.of(
+            "3:16: Unexpected token: ;",
+            "5:1: Expected ';' after imprenta_gawas statement. Found: tibuok",
+            "5:8: Expected variable name after type. Found: ="), full);
+
+        assertEquals(full, errors(() -> new IncrementalCompiler().compile(BAD)));
+
+        IncrementalCompiler edited = new IncrementalCompiler();
+        edited.compile(GOOD);
+        assertEquals(full, errors(() -> edited.compile(BAD)));
+    }
+
+    // Random edits: changed values that flow into later statements, inserted,
+    // removed and moved statements, edi split from its ug, and now and then
+    // a syntax error that the next edit takes back.
+    @Test
+    void everyEditMatchesAFullCompile() {
+        List<String> lines = new ArrayList<>();
+        for (int k = 0; k < 160; k++) lines.add(line(k));
+        Random random = new Random(12);
+        IncrementalCompiler inc = new IncrementalCompiler();
+        String source = String.join("\n", lines);
+        assertEquals(full(source), inc.compile(source));
+        for (int e = 0; e < 300; e++) {
+            int k = random.nextInt(lines.size());
+            switch (random.nextInt(6)) {
+                case 0:
+                    if (lines.size() > 10) lines.remove(k);
+                    break;
+                case 1:
+                    int base = k - k % 4;
+                    lines.add(k, "tibuok z" + e + " = a" + base + " + 1; a" + base + " = z" + e + ";");
+                    break;
+                case 2:
+                    lines.add(k, "ug (true) { imprenta_gawas 1; }");
+                    lines.add(k + 1, "edi { imprenta_gawas 2; }");
+                    break;
+                case 3:
+                    lines.add(random.nextInt(lines.size()), lines.remove(k));
+                    break;
+                default:
+                    lines.set(k, lines.get(k).replaceFirst(" 1;", " " + random.nextInt(9) + ";"));
+                    break;
+            }
+            String saved = lines.get(Math.min(k, lines.size() - 1));
+            boolean broken = random.nextInt(10) == 0;
+            if (broken) lines.set(Math.min(k, lines.size() - 1), saved.replace(";", " +;"));
+            source = String.join("\n", lines);
+            String expected;
+            try {
+                expected = full(source);
+            } catch (SyntaxError error) {
+                expected = error.getMessage();
+            }
+            String actual;
+            try {
+                actual = inc.compile(source);
+            } catch (SyntaxError error) {
+                actual = error.getMessage();
+            }
+            assertEquals(expected, actual, "edit " + e);
+            if (broken) lines.set(Math.min(k, lines.size() - 1), saved);
+        }
+    }
+
+    @Test
+    void failedCompileLeavesTheLastGoodOne() {
+        IncrementalCompiler inc = new IncrementalCompiler();
+        inc.compile(GOOD);
+        assertThrows(SyntaxError.class, () -> inc.compile(BAD));
+        String next = GOOD + "imprenta_gawas y + 1;\n";
+        assertEquals(full(next), inc.compile(next));
+    }
+}
@@ -0,0 +1,66 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Differential check of the two lexer modes: REGEX (the original scanner)
+// and TABLE (TableLexer) must produce the same tokens and offsets for any input,
+// including the odd cases REGEX gets from trim(): control characters,
+// unterminated strings, malformed numbers.
+class LexerModesTest {
+    private static final String ALPHABET =
+        "abtrufelsiokwgdhy_0123456789.;,(){}=!<>+-/* \t\n\"\u0001\u001c é \r\u000b\u0000";
+    private static final String[] FRAGMENTS = {
+        "tibuok", "lutaw", "true", "false", "imprenta_gawas", "3.14", "42", "x1",
+        "\"hi there\"", "ug", "edi", "samtang", "alang", "1.", "a.b", " "
+    };
+
+    @Test
+    void sampleProgramLexesTheSameInBothModes() throws IOException {
+        assertSameTokens(Files.readString(Path.of("compiler", "proglang.txt")));
+    }
+
+    @Test
+    void randomInputsLexTheSameInBothModes() {
+        Random random = new Random(42);
+        for (int n = 0; n < 20_000; n++) {
+            StringBuilder source = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int i = 0; i < length; i++) {
+                if (random.nextInt(3) == 0) source.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+                else source.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            assertSameTokens(source.toString());
+        }
+    }
+
+    private static void assertSameTokens(String source) {
+        assertEquals(tokens(source, Lexical_Analyzer.Mode.REGEX), tokens(source, Lexical_Analyzer.Mode.TABLE),
+            () -> "token lists differ for " + escape(source));
+    }
+
+    private static List<String> tokens(String source, Lexical_Analyzer.Mode mode) {
+        Lexical_Analyzer lexer = new Lexical_Analyzer(source, mode);
+        lexer.tokenize();
+        List<String> tokens = new ArrayList<>();
+        for (Lexical_Analyzer.Token token : lexer.tokens) tokens.add(token.type + " " + token.value + " @" + token.offset);
+        return tokens;
+    }
+
+    private static String escape(String source) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : source.toCharArray()) {
+            if (c < ' ' || c > '~') out.append(String.format("\\u%04x", (int) c));
+            else out.append(c);
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,103 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Folding must compute what the backends compute at run time, and leave in
+// place whatever would fail there.
+class OptimizerTest {
+    private static final String[] INTS = {"0", "1", "2", "7", "46341", "65536", "2147483647"};
+    private static final String[] DOUBLES = {"0.0", "0.1", "1.5", "3.0", "1000000.0"};
+    private static final String[] ARITHMETIC = {"+", "-", "*", "/"};
+    private static final String[] COMPARISONS = {"<", "<=", ">", ">=", "==", "!="};
+
+    private static String optimized(String source) {
+        return new CodeGenerator().generate(new Optimizer().optimize(BackendsTest.parse(source)));
+    }
+
+    private static String intExpr(Random random, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) return INTS[random.nextInt(INTS.length)];
+        if (random.nextInt(6) == 0) return "-" + intExpr(random, depth - 1);
+        return "(" + intExpr(random, depth - 1) + " " + ARITHMETIC[random.nextInt(4)] + " " + intExpr(random, depth - 1) + ")";
+    }
+
+    private static String doubleExpr(Random random, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) return DOUBLES[random.nextInt(DOUBLES.length)];
+        String left = random.nextInt(3) == 0 ? intExpr(random, depth - 1) : doubleExpr(random, depth - 1);
+        return "(" + left + " " + ARITHMETIC[random.nextInt(4)] + " " + doubleExpr(random, depth - 1) + ")";
+    }
+
+    private static String boolExpr(Random random, int depth) {
+        switch (depth == 0 ? 0 : random.nextInt(5)) {
+            case 0: return random.nextBoolean() ? "true" : "false";
+            case 1: return "(" + boolExpr(random, depth - 1) + (random.nextBoolean() ? " and " : " or ") + boolExpr(random, depth - 1) + ")";
+            case 2: return "!(" + boolExpr(random, depth - 1) + ")";
+            case 3: return "(" + intExpr(random, depth - 1) + " " + COMPARISONS[random.nextInt(6)] + " " + intExpr(random, depth - 1) + ")";
+            default: return "(" + doubleExpr(random, depth - 1) + " " + COMPARISONS[random.nextInt(6)] + " " + doubleExpr(random, depth - 1) + ")";
+        }
+    }
+
+    @Test
+    void foldedExpressionsPrintWhatTheyPrintedBefore() {
+        Random random = new Random(9);
+        int folded = 0;
+        for (int n = 0; n < 3000; n++) {
+            String expr;
+            switch (n % 3) {
+                case 0: expr = intExpr(random, 4); break;
+                case 1: expr = doubleExpr(random, 4); break;
+                default: expr = boolExpr(random, 4); break;
+            }
+            String source = "imprenta_gawas " + expr + ";\n";
+            AST.Program program = BackendsTest.parse(source);
+            AST.Program optimized = new Optimizer().optimize(program);
+            String expected = BackendsTest.interpret(program);
+            assertEquals(expected, BackendsTest.interpret(optimized), source);
+            // anything that ran without failing is folded to one literal
+            AST.Expr value = ((AST.Print) optimized.statements.get(0)).expression;
+            if (!expected.startsWith("!!")) {
+                assertTrue(value instanceof AST.Literal, source);
+                folded++;
+            }
+        }
+        assertTrue(folded > 2000, "only " + folded + " expressions folded");
+    }
+
+    @Test
+    void foldingFollowsJavaArithmetic() {
+        assertEquals("print(-2147483648);\n", optimized("imprenta_gawas 2147483647 + 1;"));
+        assertEquals("print(0);\n", optimized("imprenta_gawas 65536 * 65536;"));
+        assertEquals("print(-3);\n", optimized("imprenta_gawas -7 / 2;"));
+        assertEquals("print(NaN);\n", optimized("imprenta_gawas 0.0 / 0.0;"));
+        assertEquals("print(false);\n", optimized("imprenta_gawas 0.0 / 0.0 == 0.0 / 0.0;"));
+        assertEquals("print(Infinity);\n", optimized("imprenta_gawas 1.0 / 0.0;"));
+    }
+
+    @Test
+    void intDivisionByZeroIsLeftForTheBackend() {
+        assertEquals("print((1 + (10 / 0)));\n", optimized("imprenta_gawas 1 + 10 / 0;"));
+    }
+
+    @Test
+    void deadBranchesAndLoopsAreDropped() {
+        Optimizer optimizer = new Optimizer();
+        AST.Program program = optimizer.optimize(BackendsTest.parse(
+            "tibuok x = 1;\n"
+          + "ug (1 > 2) { imprenta_gawas x; } edi { imprenta_gawas 2; }\n"
+          + "samtang (false) { x = x + 1; }\n"
+          + "ug (true or x > 1) { imprenta_gawas 3; }\n"));
+        assertEquals("tibuok x = 1;\n{\nprint(2);\n}\n{\nprint(3);\n}\n", new CodeGenerator().generate(program));
+        assertTrue(optimizer.removed > 0);
+    }
+
+    @Test
+    void shadowedNamesKeepTheirOwnValues() {
+        String source = "tibuok x = 1;\n{ tibuok x = 2; imprenta_gawas x + 1; }\nimprenta_gawas x + 1;\n";
+        AST.Program program = BackendsTest.parse(source);
+        assertEquals(BackendsTest.lines("3", "2"), BackendsTest.interpret(new Optimizer().optimize(program)));
+    }
+}
@@ -0,0 +1,74 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Slices analyzed and generated on the pool must join into exactly what the
+// sequential SemanticAnalyzer and CodeGenerator produce.
+class ParallelCompilerTest {
+    private static final String[] TYPES = {"tibuok", "duhay", "karhan"};
+
+    // Top-level statements over a few dozen shared names: redeclarations,
+    // undeclared reads, type mismatches and shadowing in blocks and loops.
+    static String program(Random random, int statements) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            String v = "v" + random.nextInt(40);
+            String w = "v" + random.nextInt(40);
+            switch (random.nextInt(8)) {
+                case 0: case 1: sb.append(TYPES[random.nextInt(3)]).append(' ').append(v).append(" = ").append(w).append(" + ").append(random.nextInt(9)).append(";\n"); break;
+                case 2: sb.append(v).append(" = ").append(w).append(" * 2;\n"); break;
+                case 3: sb.append("imprenta_gawas(").append(v).append(");\n"); break;
+                case 4: sb.append("{ tibuok ").append(v).append(" = 3; ").append(w).append(" = ").append(v).append(" + 1; }\n"); break;
+                case 5: sb.append("ug (").append(v).append(" > 2) { ").append(v).append(" = ").append(v).append(" - 1; } edi { karhan ").append(v).append(" = \"x\"; }\n"); break;
+                case 6: sb.append("alang (tibuok ").append(v).append(" = 0; ").append(v).append(" < 3; ").append(v).append(" = ").append(v).append(" + 1) { imprenta_gawas(").append(v).append("); }\n"); break;
+                default: sb.append("tibuok ").append(v).append(" = 1;\n"); break;
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void parallelCompileMatchesSequential() throws IOException {
+        Random random = new Random(21);
+        for (int threads : new int[] {1, 2, 4}) {
+            ParallelCompiler parallel = new ParallelCompiler(threads);
+            int errors = 0;
+            for (int n = 0; n < 40; n++) {
+                AST.Program program = BackendsTest.parse(program(random, 20 + random.nextInt(1500)));
+                List<String> expected = new SemanticAnalyzer().check(program);
+                assertEquals(expected, parallel.check(program), threads + " threads, program " + n);
+                errors += expected.size();
+
+                AST.Program optimized = new Optimizer().optimize(program);
+                String code = new CodeGenerator().generate(optimized);
+                assertEquals(code, parallel.generate(optimized), threads + " threads, program " + n);
+                StringBuilder sink = new StringBuilder();
+                parallel.generate(optimized, sink);
+                assertEquals(code, sink.toString());
+            }
+            // the programs must exercise the error paths too
+            assertTrue(errors > 0);
+        }
+    }
+
+    @Test
+    void measuredPipelineGivesTheSameResult() {
+        char[] source = program(new Random(5), 3000).toCharArray();
+        Lexical_Analyzer sequential = new Lexical_Analyzer("");
+        Lexical_Analyzer parallel = new Lexical_Analyzer("");
+        parallel.parallel = new ParallelCompiler(4);
+        CompileCache.Entry expected = sequential.compile(source, new CompileStats("a"), true);
+        CompileStats stats = new CompileStats("b");
+        CompileCache.Entry actual = parallel.compile(source, stats, true);
+        assertEquals(expected.code, actual.code);
+        assertEquals(expected.semanticErrors, actual.semanticErrors);
+        assertEquals(CompileStats.Phase.CODEGEN, stats.entries.get(stats.entries.size() - 1).phase);
+    }
+}
@@ -0,0 +1,25 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Panic-mode recovery: one bad spot must not hide the errors after it.
+class ParserRecoveryTest {
+    @Test
+    void outOfRangeIntegerIsReportedAndParsingGoesOn() {
+        String source = "tibuok x = 99999999999;\ntibuok y = ;\nimprenta_gawas(x + 123456789012);\n";
+        SyntaxError error = assertThrows(SyntaxError.class,
+            () -> new parser(TokenBuffer.lex(source.toCharArray())).parseProgram());
+        List<String> messages = new ArrayList<>();
+        for (Diagnostic d : error.locate(source).diagnostics) messages.add(d.toString());
+        assertEquals(List.of(
+            "1:12: Integer literal out of range: 99999999999",
+            "2:12: Unexpected token: ;",
+            "3:20: Integer literal out of range: 123456789012"), messages);
+    }
+}
@@ -0,0 +1,74 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// The type rules of the analyzer, one small program per rule.
+class SemanticAnalyzerTest {
+    private static List<String> check(String source) {
+        return new SemanticAnalyzer().check(BackendsTest.parse(source));
+    }
+
+    private static void accepted(String source) {
+        assertEquals(List.of(), check(source), source);
+    }
+
+    private static void rejected(String source, String error) {
+        assertEquals(List.of(error), check(source), source);
+    }
+
+    @Test
+    void declarationsTakeWideningAndCharConversions() {
+        accepted("duhay d = 1;");
+        accepted("lutaw f = 2;");
+        accepted("karakter c = 65;");
+        accepted("duhay d = 1.5 / 2;");
+        rejected("tibuok x = 1.5;", "Type mismatch: cannot assign DOUBLE to INT 'x'");
+        rejected("karhan s = 1;", "Type mismatch: cannot assign INT to STRING 's'");
+        rejected("tibuok i = \"a\";", "Type mismatch: cannot assign STRING to INT 'i'");
+        rejected("duhay d = 1; tibuok t = d;", "Type mismatch: cannot assign DOUBLE to INT 't'");
+        rejected("tibuok x = 1; x = \"s\";", "Type mismatch: cannot assign STRING to INT 'x'");
+    }
+
+    @Test
+    void operatorsCheckTheirOperands() {
+        accepted("imprenta_gawas 1 + \"a\";");
+        accepted("imprenta_gawas \"a\" == \"b\";");
+        accepted("imprenta_gawas 1 < 2.5 and !(3 == 4);");
+        rejected("imprenta_gawas \"a\" - 1;", "Type mismatch in binary operation: STRING - INT");
+        rejected("imprenta_gawas 1 < \"a\";", "Type mismatch in binary operation: INT < STRING");
+        rejected("imprenta_gawas true + 1;", "Type mismatch in binary operation: BOOLEAN + INT");
+        rejected("imprenta_gawas true == 1;", "Type mismatch in binary operation: BOOLEAN == INT");
+        rejected("imprenta_gawas 1 and true;", "Type mismatch in binary operation: INT and BOOLEAN");
+        rejected("imprenta_gawas !1;", "Type mismatch in unary operation: ! INT");
+        rejected("imprenta_gawas -true;", "Type mismatch in unary operation: - BOOLEAN");
+    }
+
+    @Test
+    void conditionsMustBeBoolean() {
+        rejected("ug (1) { }", "Condition in IF statement must be BOOLEAN.");
+        rejected("samtang (\"s\") { }", "Condition in WHILE loop must be BOOLEAN.");
+    }
+
+    @Test
+    void namesAreScoped() {
+        accepted("tibuok x = 1; { tibuok x = 2; }");
+        rejected("imprenta_gawas y;", "Variable 'y' not declared.");
+        rejected("tibuok x = 1; tibuok x = 2;", "Variable 'x' already declared.");
+        rejected("{ tibuok x = 2; } imprenta_gawas x;", "Variable 'x' not declared.");
+        rejected("alang (tibuok i = 0; i < 2; i = i + 1) { } imprenta_gawas i;", "Variable 'i' not declared.");
+    }
+
+    // every error is reported, in source order
+    @Test
+    void analysisGoesOnAfterAnError() {
+        assertEquals(List.of(
+            "Variable 'y' not declared.",
+            "Type mismatch: cannot assign DOUBLE to INT 'x'",
+            "Condition in IF statement must be BOOLEAN."),
+            check("imprenta_gawas y;\ntibuok x = 1.5;\nug (x) { }\n"));
+    }
+}
@@ -0,0 +1,32 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// The interner is bounded for leased work: past Symbols.LIMIT names, the
+// table starts over once the last lease is released.
+class SymbolsTest {
+    @Test
+    void tableIsResetAfterTheLastLeaseOnceOverTheLimit() {
+        Symbols.acquire();
+        try {
+            for (int i = 0; i <= Symbols.LIMIT; i++) Symbols.intern("name" + i);
+            assertTrue(Symbols.count() > Symbols.LIMIT);
+            assertEquals("name7", Symbols.name(Symbols.intern("name7")));
+        } finally {
+            Symbols.release();
+        }
+        assertEquals(0, Symbols.count());
+
+        Symbols.acquire();
+        try {
+            int id = Symbols.intern("fresh");
+            assertEquals(0, id);
+            assertEquals("fresh", Symbols.name(id));
+        } finally {
+            Symbols.release();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package compiler;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The buffered token stream must replay exactly what the lexer produced, so
+// parsing from a TokenBuffer is the same as parsing straight off the lexer.
+class TokenBufferTest {
+    private static final String[] FRAGMENTS = {
+        "tibuok", "duhay", "karhan", "x", "y1", "_z", "=", "==", "!=", "<=", "<", "+", "-", "*", "/",
+        ";", "(", ")", "{", "}", "12", "3.5", "1.", "\"s t\"", "ug", "edi", "imprenta_gawas", " ", "\n", "\t"
+    };
+
+    private static String random(Random random, int fragments) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fragments; i++) sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]).append(random.nextInt(3) == 0 ? " " : "");
+        return sb.toString();
+    }
+
+    // kind, offset, lexeme and symbol of every token the source hands out
+    private static List<String> replay(TokenSource source) {
+        List<String> tokens = new ArrayList<>();
+        int kind;
+        while ((kind = source.next()) != TokenKind.EOF) {
+            tokens.add(kind + " @" + source.offset() + " " + source.text() + " #" + source.symbol());
+        }
+        return tokens;
+    }
+
+    @Test
+    void cursorReplaysTheLexer() {
+        Random random = new Random(2);
+        for (int n = 0; n < 2000; n++) {
+            String source = random(random, random.nextInt(200));
+            List<String> lexed = replay(new TableLexer(new StringReader(source)));
+            assertEquals(lexed, replay(TokenBuffer.lex(source.toCharArray()).cursor()), source);
+        }
+    }
+
+    @Test
+    void growsPastItsFirstGuess() {
+        // a token per char: four times the length / 4 guess
+        String source = ";".repeat(10_000);
+        TokenBuffer tokens = TokenBuffer.lex(source.toCharArray());
+        assertEquals(10_000, tokens.size());
+        assertEquals(9_999, tokens.start(9_999));
+        assertEquals(TokenKind.SEMICOLON, tokens.kind(9_999));
+    }
+
+    @Test
+    void endOfInputStaysAtTheEnd() {
+        TokenSource cursor = TokenBuffer.lex("tibuok x  ".toCharArray()).cursor();
+        cursor.next();
+        cursor.next();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TokenKind.EOF, cursor.next());
+            assertEquals(8, cursor.offset());
+            assertEquals("", cursor.text());
+        }
+    }
+
+    @Test
+    void parsingFromTheBufferMatchesTheLexer() throws IOException {
+        String source = Files.readString(Path.of("compiler", "proglang.txt"));
+        AST.Program streamed = new parser(new TableLexer(source.toCharArray())).parseProgram();
+        AST.Program buffered = new parser(TokenBuffer.lex(source.toCharArray())).parseProgram();
+        assertArrayEquals(AstFormat.write(streamed), AstFormat.write(buffered));
+    }
+
+    @Test
+    void regexTokensHaveNoSourcePositions() {
+        Lexical_Analyzer lexer = new Lexical_Analyzer("tibuok x = 1;");
+        lexer.tokenize();
+        TokenBuffer tokens = TokenBuffer.of(lexer.tokens);
+        assertEquals(5, tokens.size());
+        assertEquals("x", tokens.lexeme(1));
+        assertEquals(-1, tokens.token(1).offset);
+        assertNull(tokens.cursor().source());
+    }
+}